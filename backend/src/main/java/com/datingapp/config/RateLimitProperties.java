@@ -0,0 +1,38 @@
+package com.datingapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitProperties {
+    private boolean enabled = true;
+    
+    // How often buckets that have refilled completely are dropped
+    private long evictionIntervalMs = 60000;
+    
+    // Checked in order, the first matching policy applies
+    private List<Policy> policies = new ArrayList<>();
+    
+    @Data
+    public static class Policy {
+        private String name;
+        
+        // Ant-style pattern, relative to the context path
+        private String path;
+        
+        // Any method when empty
+        private String method;
+        
+        // Requests allowed in a burst
+        private int capacity;
+        
+        // Sustained requests per minute once the burst is spent
+        private int refillPerMinute;
+    }
+}
@@ -0,0 +1,34 @@
+package com.datingapp.controller;
+
+import com.datingapp.dto.DeviceTokenRequest;
+import com.datingapp.security.JwtPrincipal;
+import com.datingapp.service.DeviceService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/devices")
+public class DeviceController {
+    
+    @Autowired
+    private DeviceService deviceService;
+    
+    @PostMapping
+    public ResponseEntity<Void> register(
+            @Valid @RequestBody DeviceTokenRequest request,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        deviceService.register(principal.getUserId(), request.getToken());
+        return ResponseEntity.ok().build();
+    }
+    
+    @DeleteMapping
+    public ResponseEntity<Void> unregister(
+            @Valid @RequestBody DeviceTokenRequest request,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        deviceService.unregister(principal.getUserId(), request.getToken());
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.datingapp.controller;
+
+import com.datingapp.security.JwtPrincipal;
+import com.datingapp.service.PartnerChannelRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/events")
+public class EventStreamController {
+    
+    @Autowired
+    private PartnerChannelRegistry partnerChannelRegistry;
+    
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@AuthenticationPrincipal JwtPrincipal principal) {
+        return partnerChannelRegistry.open(principal.getUserId());
+    }
+}
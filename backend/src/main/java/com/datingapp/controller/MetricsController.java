@@ -0,0 +1,27 @@
+package com.datingapp.controller;
+
+import com.datingapp.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/internal/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private List<MetricsSource> metricsSources;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Number>>> getMetrics() {
+        Map<String, Map<String, Number>> response = new TreeMap<>();
+        for (MetricsSource source : metricsSources) {
+            response.put(source.getMetricsName(), source.getMetrics());
+        }
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,12 +1,14 @@
 package com.datingapp.controller;
 
+import com.datingapp.dto.MessageHistoryResponse;
 import com.datingapp.dto.NotificationRequest;
-import com.datingapp.security.JwtUtil;
+import com.datingapp.security.JwtPrincipal;
+import com.datingapp.service.MessageHistoryService;
 import com.datingapp.service.NotificationService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -17,29 +19,34 @@ public class NotificationController {
     private NotificationService notificationService;
     
     @Autowired
-    private JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.getUserIdFromToken(token);
-    }
+    private MessageHistoryService messageHistoryService;
     
     @PostMapping("/quick")
     public ResponseEntity<Void> sendQuickNotification(
             @Valid @RequestBody NotificationRequest request,
-            HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         notificationService.sendQuickNotification(userId, request);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.accepted().build();
     }
     
     @PostMapping("/custom")
     public ResponseEntity<Void> sendCustomNotification(
             @Valid @RequestBody NotificationRequest request,
-            HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         notificationService.sendQuickNotification(userId, request);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.accepted().build();
+    }
+    
+    @GetMapping("/history")
+    public ResponseEntity<MessageHistoryResponse> getHistory(
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
+        MessageHistoryResponse response = messageHistoryService.getHistory(userId, before, since, limit);
+        return ResponseEntity.ok(response);
     }
 }
-
@@ -1,14 +1,18 @@
 package com.datingapp.controller;
 
+import com.datingapp.dto.AuthResponse;
 import com.datingapp.dto.ConfirmPairingRequest;
+import com.datingapp.dto.CoupleStatusResponse;
 import com.datingapp.dto.PairingCodeResponse;
-import com.datingapp.security.JwtUtil;
+import com.datingapp.security.JwtPrincipal;
 import com.datingapp.service.PairingService;
-import jakarta.servlet.http.HttpServletRequest;
+import com.datingapp.service.PairingWaitRegistry;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping("/pair")
@@ -18,27 +22,31 @@ public class PairingController {
     private PairingService pairingService;
     
     @Autowired
-    private JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.getUserIdFromToken(token);
-    }
+    private PairingWaitRegistry pairingWaitRegistry;
     
     @PostMapping("/code")
-    public ResponseEntity<PairingCodeResponse> generateCode(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<PairingCodeResponse> generateCode(@AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         PairingCodeResponse response = pairingService.generatePairingCode(userId);
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Long-poll for code owners: completes as soon as a partner confirms the
+     * owner's code, or with {@code paired=false} once the code expires.
+     */
+    @GetMapping("/wait")
+    public DeferredResult<CoupleStatusResponse> waitForPartner(@AuthenticationPrincipal JwtPrincipal principal) {
+        return pairingWaitRegistry.await(principal.getUserId());
+    }
+    
     @PostMapping("/confirm")
-    public ResponseEntity<Void> confirmPairing(
+    public ResponseEntity<AuthResponse> confirmPairing(
             @Valid @RequestBody ConfirmPairingRequest confirmRequest,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
-        pairingService.confirmPairing(confirmRequest.getCode(), userId);
-        return ResponseEntity.ok().build();
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
+        AuthResponse response = pairingService.confirmPairing(confirmRequest.getCode(), userId);
+        return ResponseEntity.ok(response);
     }
 }
 
@@ -3,13 +3,13 @@ package com.datingapp.controller;
 import com.datingapp.dto.NotificationRequest;
 import com.datingapp.dto.QuickMessageRequest;
 import com.datingapp.dto.QuickMessageResponse;
-import com.datingapp.security.JwtUtil;
+import com.datingapp.security.JwtPrincipal;
 import com.datingapp.service.NotificationService;
 import com.datingapp.service.QuickMessageService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -24,26 +24,18 @@ public class QuickMessageController {
     @Autowired
     private NotificationService notificationService;
     
-    @Autowired
-    private JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.getUserIdFromToken(token);
-    }
-    
     @PostMapping
     public ResponseEntity<QuickMessageResponse> createMessage(
             @Valid @RequestBody QuickMessageRequest request,
-            HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         QuickMessageResponse response = quickMessageService.createMessage(userId, request);
         return ResponseEntity.ok(response);
     }
     
     @GetMapping
-    public ResponseEntity<List<QuickMessageResponse>> getMessages(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<QuickMessageResponse>> getMessages(@AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         List<QuickMessageResponse> response = quickMessageService.getMessages(userId);
         return ResponseEntity.ok(response);
     }
@@ -51,8 +43,8 @@ public class QuickMessageController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMessage(
             @PathVariable Long id,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         quickMessageService.deleteMessage(userId, id);
         return ResponseEntity.ok().build();
     }
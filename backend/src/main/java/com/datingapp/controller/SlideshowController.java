@@ -1,13 +1,16 @@
 package com.datingapp.controller;
 
+import com.datingapp.dto.MoveSlideshowImageRequest;
 import com.datingapp.dto.ReorderSlideshowRequest;
 import com.datingapp.dto.SlideshowImageResponse;
-import com.datingapp.security.JwtUtil;
+import com.datingapp.security.JwtPrincipal;
 import com.datingapp.service.SlideshowService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,26 +24,35 @@ public class SlideshowController {
     @Autowired
     private SlideshowService slideshowService;
     
-    @Autowired
-    private JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.getUserIdFromToken(token);
-    }
+    @Value("${app.slideshow.max-upload-bytes}")
+    private long maxUploadBytes;
     
     @PostMapping("/upload")
     public ResponseEntity<SlideshowImageResponse> uploadImage(
             @RequestParam("file") MultipartFile file,
-            HttpServletRequest request) throws IOException {
-        Long userId = getUserIdFromRequest(request);
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        Long userId = principal.getUserId();
         SlideshowImageResponse response = slideshowService.uploadImage(userId, file);
         return ResponseEntity.ok(response);
     }
     
+    // Raw image body, streamed to storage as it arrives
+    @PostMapping(value = "/images", consumes = "image/*")
+    public ResponseEntity<SlideshowImageResponse> uploadImageStream(
+            HttpServletRequest request,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        if (request.getContentLengthLong() > maxUploadBytes) {
+            throw new RuntimeException("Image exceeds the maximum upload size");
+        }
+        Long userId = principal.getUserId();
+        SlideshowImageResponse response = slideshowService.uploadImage(
+                userId, request.getInputStream(), request.getContentType());
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping
-    public ResponseEntity<List<SlideshowImageResponse>> getSlideshow(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<SlideshowImageResponse>> getSlideshow(@AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         List<SlideshowImageResponse> response = slideshowService.getSlideshow(userId);
         return ResponseEntity.ok(response);
     }
@@ -48,17 +60,27 @@ public class SlideshowController {
     @PutMapping("/reorder")
     public ResponseEntity<Void> reorderImages(
             @Valid @RequestBody ReorderSlideshowRequest reorderRequest,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         slideshowService.reorderImages(userId, reorderRequest);
         return ResponseEntity.ok().build();
     }
     
+    @PutMapping("/{id}/position")
+    public ResponseEntity<SlideshowImageResponse> moveImage(
+            @PathVariable Long id,
+            @RequestBody MoveSlideshowImageRequest moveRequest,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
+        SlideshowImageResponse response = slideshowService.moveImage(userId, id, moveRequest);
+        return ResponseEntity.ok(response);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteImage(
             @PathVariable Long id,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        Long userId = principal.getUserId();
         slideshowService.deleteImage(userId, id);
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,136 @@
+package com.datingapp.controller;
+
+import com.datingapp.security.ImageUrlSigner;
+import com.datingapp.storage.ImageStorage;
+import com.datingapp.storage.StoredImage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves stored slideshow files from whichever {@link ImageStorage} is active.
+ * The path is outside the security filter chain; requests are authorized by
+ * the URL signature alone.
+ *
+ * <p>Stored files never change, so responses are cacheable for a year with a
+ * strong ETag, and a single byte range can be requested to resume a download.
+ * Large plain files are handed to Tomcat's sendfile support; everything else
+ * is copied with {@link StoredImage#transferTo}.
+ */
+@RestController
+public class UploadController {
+    // Private: the URL is a capability, shared caches should not hand it out
+    private static final String CACHE_CONTROL =
+            CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable().getHeaderValue();
+    
+    // Request attributes of Tomcat's NIO connector, the same ones its DefaultServlet uses
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Below this a plain write is cheaper than setting up sendfile, Tomcat's own default
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+    
+    @Autowired
+    private ImageStorage imageStorage;
+    
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+    
+    @GetMapping("/uploads/{filename:.+}")
+    public void serve(@PathVariable String filename,
+                      @RequestParam(name = ImageUrlSigner.EXPIRES_PARAM, required = false) String expires,
+                      @RequestParam(name = ImageUrlSigner.SIGNATURE_PARAM, required = false) String signature,
+                      ServletWebRequest request) throws IOException {
+        HttpServletResponse response = request.getResponse();
+        if (!imageUrlSigner.verify(filename, expires, signature)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        StoredImage image = ImageStorage.isValidKey(filename) ? imageStorage.get(filename) : null;
+        if (image == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        
+        // Uploads are named by their SHA-256, so the name is a strong ETag shared by identical images
+        String etag = etagOf(filename);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (request.checkNotModified(etag)) {
+            return;
+        }
+        
+        long length = image.length();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        
+        long start = 0;
+        long end = length - 1;
+        HttpServletRequest servletRequest = request.getRequest();
+        String range = servletRequest.getHeader(HttpHeaders.RANGE);
+        String ifRange = servletRequest.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = null;
+            }
+            // Several ranges would need a multipart body; sending the whole file instead is allowed
+            if (ranges != null && ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            }
+            if (ranges == null || start >= length || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(servletRequest.getMethod())) {
+            return;
+        }
+        
+        Path file = image.file();
+        if (file != null && count >= SENDFILE_MIN_BYTES
+                && Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector sends the file after this returns, without copying it through the JVM
+            servletRequest.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            servletRequest.setAttribute(SENDFILE_START, start);
+            servletRequest.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        image.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+    }
+    
+    private static String etagOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return "\"" + (dot > 0 ? filename.substring(0, dot) : filename) + "\"";
+    }
+}
@@ -0,0 +1,12 @@
+package com.datingapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class DeviceTokenRequest {
+    @NotBlank(message = "Device token is required")
+    @Size(max = 512, message = "Device token must not exceed 512 characters")
+    private String token;
+}
@@ -0,0 +1,23 @@
+package com.datingapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryResponse {
+    private List<SentMessageResponse> messages;
+    
+    // Pass as "before" to page further back
+    private String olderCursor;
+    
+    // Pass as "since" to fetch what was sent after this page
+    private String newerCursor;
+    
+    // More messages exist in the direction that was requested
+    private boolean hasMore;
+}
@@ -0,0 +1,13 @@
+package com.datingapp.dto;
+
+import lombok.Data;
+
+/**
+ * Where to put an image: directly after one image, directly before another,
+ * or between two adjacent ones. At least one neighbour is required.
+ */
+@Data
+public class MoveSlideshowImageRequest {
+    private Long afterImageId;
+    private Long beforeImageId;
+}
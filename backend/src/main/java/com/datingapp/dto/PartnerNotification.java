@@ -0,0 +1,17 @@
+package com.datingapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartnerNotification {
+    private String message;
+    private Long fromUserId;
+    private LocalDateTime sentAt;
+    private int count; // notifications merged into this one
+}
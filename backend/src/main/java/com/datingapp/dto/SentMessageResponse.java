@@ -0,0 +1,17 @@
+package com.datingapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentMessageResponse {
+    private Long id;
+    private String content;
+    private Long senderUserId;
+    private LocalDateTime createdAt;
+}
@@ -12,6 +12,9 @@ import java.time.LocalDateTime;
 public class SlideshowImageResponse {
     private Long id;
     private String imageUrl;
+    private String thumbnailUrl; // null until the variants are ready
+    private String displayUrl;
+    private String blurhash;
     private Integer orderIndex;
     private Long uploadedByUserId;
     private LocalDateTime createdAt;
@@ -20,10 +20,10 @@ public class Couple {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
-  @Column(name = "user1_id", nullable = false)
+  @Column(name = "user1_id", nullable = false, unique = true)
   private Long user1Id;
 
-  @Column(name = "user2_id", nullable = false)
+  @Column(name = "user2_id", nullable = false, unique = true)
   private Long user2Id;
 
   @Column(name = "paired_at", nullable = false, updatable = false)
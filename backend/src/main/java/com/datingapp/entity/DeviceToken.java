@@ -0,0 +1,28 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "device_tokens", indexes = {
+    @Index(name = "idx_device_user", columnList = "userId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceToken {
+    // FCM registration token of one app installation
+    @Id
+    @Column(length = 512)
+    private String token;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
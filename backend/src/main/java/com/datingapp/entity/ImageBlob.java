@@ -0,0 +1,46 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored image file, named by the SHA-256 of its bytes and shared by
+ * every slideshow image with the same content.
+ */
+@Entity
+@Table(name = "image_blobs", indexes = {
+    @Index(name = "idx_blob_released", columnList = "releasedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+    // Hex SHA-256 of the file
+    @Id
+    @Column(length = 64)
+    private String digest;
+    
+    @Column(nullable = false, length = 100)
+    private String filename;
+    
+    @Column(nullable = false)
+    private Long sizeBytes;
+    
+    // Slideshow images pointing at this file
+    @Column(nullable = false)
+    private Integer refCount;
+    
+    // False from the first reference until its file has been written; acquirers that see it false write their own copy
+    @Column(nullable = false)
+    private Boolean stored;
+    
+    // Set when the count drops to zero; the row is then a tombstone until UploadCollector removes the file
+    private LocalDateTime releasedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,51 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notification_dead_letters", indexes = {
+    @Index(name = "idx_dead_letter_recipient", columnList = "recipientUserId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long recipientUserId;
+    
+    private String title;
+    
+    @Column(nullable = false, length = 1000)
+    private String body;
+    
+    // Message data as JSON, kept so the notification can be replayed
+    @Column(columnDefinition = "TEXT")
+    private String data;
+    
+    @Column(nullable = false, length = 20)
+    private String provider;
+    
+    @Column(nullable = false)
+    private Integer attempts;
+    
+    // RETRY when attempts ran out, REJECTED when the provider refused it, QUEUE_FULL when a retry could not be requeued
+    @Column(nullable = false, length = 20)
+    private String reason;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
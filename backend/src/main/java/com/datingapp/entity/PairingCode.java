@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "pairing_codes", indexes = {
     @Index(name = "idx_code", columnList = "code"),
-    @Index(name = "idx_owner", columnList = "ownerUserId")
+    @Index(name = "idx_owner", columnList = "ownerUserId"),
+    @Index(name = "idx_expires", columnList = "expiresAt")
 })
 @Data
 @NoArgsConstructor
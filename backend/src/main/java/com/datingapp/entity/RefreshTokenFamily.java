@@ -0,0 +1,33 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "refresh_token_families", indexes = {
+    @Index(name = "idx_refresh_family_expires", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenFamily {
+    @Id
+    @Column(length = 36)
+    private String familyId;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Integer generation;
+    
+    @Column(nullable = false)
+    private Boolean revoked = false;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,35 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+    @Index(name = "idx_revoked_expires", columnList = "expiresAt"),
+    @Index(name = "idx_revoked_at", columnList = "revokedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Set when every token of the user issued before revokedAt is revoked
+    private Long userId;
+    
+    // Set when a single token (jti) is revoked
+    @Column(length = 36)
+    private String tokenId;
+    
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,35 @@
+package com.datingapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sent_messages", indexes = {
+    // Serves the keyset pages of a couple's history in both directions
+    @Index(name = "idx_sent_couple_created", columnList = "coupleId, createdAt, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long coupleId;
+    
+    @Column(nullable = false)
+    private Long senderUserId;
+    
+    @Column(nullable = false, length = 1000)
+    private String content;
+    
+    // Set by the service, truncated to the column's precision so cursors round-trip exactly
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
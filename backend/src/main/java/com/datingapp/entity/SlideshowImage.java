@@ -26,6 +26,17 @@ public class SlideshowImage {
     @Column(nullable = false, length = 500)
     private String imageUrl;
     
+    // Downscaled copies, filled in by ImageVariantProcessor after upload
+    @Column(length = 500)
+    private String thumbnailUrl;
+    
+    @Column(length = 500)
+    private String displayUrl;
+    
+    // Placeholder clients draw until the image loads, computed along with the variants
+    @Column(length = 64)
+    private String blurhash;
+    
     @Column(nullable = false)
     private Integer orderIndex;
     
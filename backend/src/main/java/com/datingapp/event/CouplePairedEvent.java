@@ -0,0 +1,18 @@
+package com.datingapp.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published inside the pairing transaction; listeners that keep in-memory
+ * state should use {@code @TransactionalEventListener} so they only see
+ * committed couples.
+ */
+@Value
+public class CouplePairedEvent {
+    Long coupleId;
+    Long user1Id;
+    Long user2Id;
+    LocalDateTime pairedAt;
+}
@@ -0,0 +1,23 @@
+package com.datingapp.event;
+
+import lombok.Value;
+
+/**
+ * Something the partner's open devices should hear about right away. Published
+ * by services and delivered after the surrounding transaction commits, so the
+ * partner never refetches data that isn't visible yet.
+ */
+@Value
+public class PartnerEvent {
+    public static final String NOTIFICATION = "notification";
+    public static final String QUICK_MESSAGE_CREATED = "quick-message.created";
+    public static final String QUICK_MESSAGE_DELETED = "quick-message.deleted";
+    public static final String SLIDESHOW_IMAGE_ADDED = "slideshow.added";
+    public static final String SLIDESHOW_IMAGE_DELETED = "slideshow.deleted";
+    public static final String SLIDESHOW_IMAGE_MOVED = "slideshow.moved";
+    public static final String SLIDESHOW_REORDERED = "slideshow.reordered";
+    
+    Long recipientId;
+    String type;
+    Object data;
+}
@@ -0,0 +1,14 @@
+package com.datingapp.event;
+
+import com.datingapp.dto.QuickMessageResponse;
+import lombok.Value;
+
+/**
+ * Published inside the create transaction; the palette cache picks it up
+ * only after commit, so it never holds a message that was rolled back.
+ */
+@Value
+public class QuickMessageCreatedEvent {
+    Long coupleId;
+    QuickMessageResponse message;
+}
@@ -0,0 +1,13 @@
+package com.datingapp.exception;
+
+/**
+ * Thrown when a request was based on state that has changed since the client
+ * read it. Mapped to {@code 409 Conflict}; the client should reload and retry.
+ */
+public class ConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.datingapp.exception;
+
+/**
+ * Thrown when a presented token is invalid, expired or revoked. Mapped to
+ * {@code 401 Unauthorized}.
+ */
+public class InvalidTokenException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.datingapp.exception;
+
+/**
+ * Thrown when a bounded worker pool cannot accept more work. Mapped to
+ * {@code 503 Service Unavailable} with a {@code Retry-After} header.
+ */
+public class ServiceBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterSeconds;
+    
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
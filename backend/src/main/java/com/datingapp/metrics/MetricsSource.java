@@ -0,0 +1,13 @@
+package com.datingapp.metrics;
+
+import java.util.Map;
+
+/**
+ * Implemented by components that publish operational counters and gauges.
+ * All sources are collected by {@code MetricsController}.
+ */
+public interface MetricsSource {
+    String getMetricsName();
+    
+    Map<String, Number> getMetrics();
+}
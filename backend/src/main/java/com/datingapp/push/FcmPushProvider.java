@@ -0,0 +1,191 @@
+package com.datingapp.push;
+
+import com.datingapp.service.DeviceService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.auth.oauth2.GoogleCredentials;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends through the FCM HTTP v1 API to the registration tokens the recipient's
+ * devices registered with {@link DeviceService}. The v1 API takes one message
+ * per token and request, so a batch is sent as concurrent requests over one
+ * shared HTTP/2 client. Tokens FCM reports as unregistered are removed.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notifications.provider", havingValue = "fcm")
+public class FcmPushProvider implements PushProvider {
+    private static final Logger log = LoggerFactory.getLogger(FcmPushProvider.class);
+    private static final String MESSAGING_SCOPE = "https://www.googleapis.com/auth/firebase.messaging";
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private DeviceService deviceService;
+    
+    @Value("${app.notifications.fcm.project-id}")
+    private String projectId;
+    
+    // Service account key file; when empty, Application Default Credentials are used
+    @Value("${app.notifications.fcm.credentials-file:}")
+    private String credentialsFile;
+    
+    @Value("${app.notifications.fcm.timeout-ms:5000}")
+    private long timeoutMs;
+    
+    private HttpClient httpClient;
+    private URI sendUri;
+    private GoogleCredentials credentials;
+    
+    @PostConstruct
+    void init() throws IOException {
+        if (credentialsFile.isEmpty()) {
+            credentials = GoogleCredentials.getApplicationDefault().createScoped(MESSAGING_SCOPE);
+        } else {
+            try (InputStream key = Files.newInputStream(Path.of(credentialsFile))) {
+                credentials = GoogleCredentials.fromStream(key).createScoped(MESSAGING_SCOPE);
+            }
+        }
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        sendUri = URI.create("https://fcm.googleapis.com/v1/projects/" + projectId + "/messages:send");
+    }
+    
+    @Override
+    public String getName() {
+        return "fcm";
+    }
+    
+    @Override
+    public List<PushOutcome> send(List<PushMessage> batch) {
+        String accessToken;
+        try {
+            // The token is cached by the credential and only re-minted shortly before it expires
+            credentials.refreshIfExpired();
+            accessToken = credentials.getAccessToken().getTokenValue();
+        } catch (IOException e) {
+            log.warn("Could not obtain an FCM access token: {}", e.getMessage());
+            return Collections.nCopies(batch.size(), PushOutcome.RETRY);
+        }
+        
+        Set<Long> recipients = new HashSet<>();
+        for (PushMessage message : batch) {
+            recipients.add(message.getRecipientId());
+        }
+        Map<Long, List<String>> tokens = deviceService.tokensFor(recipients);
+        
+        List<List<CompletableFuture<PushOutcome>>> pending = new ArrayList<>(batch.size());
+        for (PushMessage message : batch) {
+            List<CompletableFuture<PushOutcome>> perDevice = new ArrayList<>();
+            for (String token : tokens.getOrDefault(message.getRecipientId(), List.of())) {
+                perDevice.add(sendOne(message, token, accessToken));
+            }
+            pending.add(perDevice);
+        }
+        List<PushOutcome> outcomes = new ArrayList<>(batch.size());
+        for (List<CompletableFuture<PushOutcome>> perDevice : pending) {
+            outcomes.add(combine(perDevice));
+        }
+        return outcomes;
+    }
+    
+    // Retrying after one device got the message would show it twice there, so any delivery counts
+    private static PushOutcome combine(List<CompletableFuture<PushOutcome>> perDevice) {
+        if (perDevice.isEmpty()) {
+            return PushOutcome.DELIVERED; // no registered devices, nothing to send
+        }
+        PushOutcome combined = PushOutcome.REJECTED;
+        for (CompletableFuture<PushOutcome> outcome : perDevice) {
+            PushOutcome result = outcome.join();
+            if (result == PushOutcome.DELIVERED) {
+                combined = PushOutcome.DELIVERED;
+            } else if (result == PushOutcome.RETRY && combined == PushOutcome.REJECTED) {
+                combined = PushOutcome.RETRY;
+            }
+        }
+        return combined;
+    }
+    
+    private CompletableFuture<PushOutcome> sendOne(PushMessage message, String token, String accessToken) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(sendUri)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Authorization", "Bearer " + accessToken)
+                    .header("Content-Type", "application/json; charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(toJson(message, token)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.completedFuture(PushOutcome.REJECTED);
+        }
+        
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> toOutcome(message, token, response))
+                .exceptionally(e -> {
+                    log.debug("FCM request for user {} failed: {}", message.getRecipientId(), e.getMessage());
+                    return PushOutcome.RETRY;
+                });
+    }
+    
+    private String toJson(PushMessage message, String token) throws JsonProcessingException {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        if (message.getTitle() != null) {
+            notification.put("title", message.getTitle());
+        }
+        notification.put("body", message.getBody());
+        
+        Map<String, Object> fcmMessage = new LinkedHashMap<>();
+        fcmMessage.put("token", token);
+        fcmMessage.put("notification", notification);
+        if (message.getData() != null && !message.getData().isEmpty()) {
+            fcmMessage.put("data", message.getData());
+        }
+        return objectMapper.writeValueAsString(Map.of("message", fcmMessage));
+    }
+    
+    private PushOutcome toOutcome(PushMessage message, String token, HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return PushOutcome.DELIVERED;
+        }
+        // UNREGISTERED: the app was uninstalled or the token rotated
+        if (status == 404) {
+            log.debug("Removing unregistered device token of user {}", message.getRecipientId());
+            deviceService.removeStale(token);
+            return PushOutcome.REJECTED;
+        }
+        // Throttling and server errors are transient, anything else is a bad message or credentials
+        if (status == 429 || status >= 500) {
+            return PushOutcome.RETRY;
+        }
+        log.warn("FCM rejected push for user {} with status {}: {}", message.getRecipientId(), status, response.body());
+        return PushOutcome.REJECTED;
+    }
+}
@@ -0,0 +1,13 @@
+package com.datingapp.push;
+
+import lombok.Value;
+
+import java.util.Map;
+
+@Value
+public class PushMessage {
+    Long recipientId;
+    String title;
+    String body;
+    Map<String, String> data;
+}
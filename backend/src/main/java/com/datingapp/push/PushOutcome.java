@@ -0,0 +1,9 @@
+package com.datingapp.push;
+
+public enum PushOutcome {
+    DELIVERED,
+    /** Transient failure (throttling, provider or network error); worth another attempt. */
+    RETRY,
+    /** The provider refused the message; retrying will not help. */
+    REJECTED
+}
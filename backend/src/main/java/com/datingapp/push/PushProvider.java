@@ -0,0 +1,19 @@
+package com.datingapp.push;
+
+import java.util.List;
+
+/**
+ * Delivers push notifications to devices. The active implementation is chosen
+ * with {@code app.notifications.provider}; it is only ever called from the
+ * dispatcher's worker threads, so blocking is fine.
+ */
+public interface PushProvider {
+    
+    String getName();
+    
+    /**
+     * Sends a batch and reports one outcome per message, in batch order.
+     * Should not throw; failures are reported as {@link PushOutcome#RETRY}.
+     */
+    List<PushOutcome> send(List<PushMessage> batch);
+}
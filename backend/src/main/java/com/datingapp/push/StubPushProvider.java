@@ -0,0 +1,44 @@
+package com.datingapp.push;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Logs instead of delivering, after sleeping for a configurable per-batch
+ * latency so local runs and load tests see provider-like timing.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notifications.provider", havingValue = "stub", matchIfMissing = true)
+public class StubPushProvider implements PushProvider {
+    private static final Logger log = LoggerFactory.getLogger(StubPushProvider.class);
+    
+    @Value("${app.notifications.stub.latency-ms:0}")
+    private long latencyMs;
+    
+    @Override
+    public String getName() {
+        return "stub";
+    }
+    
+    @Override
+    public List<PushOutcome> send(List<PushMessage> batch) {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Collections.nCopies(batch.size(), PushOutcome.RETRY);
+            }
+        }
+        for (PushMessage message : batch) {
+            log.debug("Push to user {}: {}", message.getRecipientId(), message.getBody());
+        }
+        return Collections.nCopies(batch.size(), PushOutcome.DELIVERED);
+    }
+}
@@ -1,11 +1,14 @@
 package com.datingapp.repository;
 
 import com.datingapp.entity.Couple;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,5 +17,10 @@ public interface CoupleRepository extends JpaRepository<Couple, Long> {
     Optional<Couple> findByUserId(@Param("userId") Long userId);
     
     boolean existsByUser1IdOrUser2Id(Long user1Id, Long user2Id);
+    
+    @Query("SELECT c FROM Couple c WHERE c.user1Id IN :userIds OR c.user2Id IN :userIds")
+    List<Couple> findByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    List<Couple> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
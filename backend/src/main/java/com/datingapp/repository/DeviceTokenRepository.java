@@ -0,0 +1,32 @@
+package com.datingapp.repository;
+
+import com.datingapp.entity.DeviceToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DeviceTokenRepository extends JpaRepository<DeviceToken, String> {
+    List<DeviceToken> findByUserIdIn(Collection<Long> userIds);
+    
+    // A device that signs in with another account moves to that account
+    @Modifying
+    @Query(value = "INSERT INTO device_tokens (token, user_id, updated_at) VALUES (:token, :userId, :now) " +
+            "ON CONFLICT (token) DO UPDATE SET user_id = EXCLUDED.user_id, updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int upsert(@Param("token") String token, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM DeviceToken d WHERE d.token = :token AND d.userId = :userId")
+    int deleteByTokenAndUserId(@Param("token") String token, @Param("userId") Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM DeviceToken d WHERE d.token = :token")
+    int deleteByToken(@Param("token") String token);
+}
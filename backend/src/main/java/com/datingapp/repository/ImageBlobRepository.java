@@ -0,0 +1,43 @@
+package com.datingapp.repository;
+
+import com.datingapp.entity.ImageBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+    
+    List<ImageBlob> findByRefCountLessThanEqualAndReleasedAtBefore(int refCount, LocalDateTime cutoff, Pageable pageable);
+    
+    // Held until the caller commits, so an upload of the same content waits until the files are gone
+    @Query(value = "SELECT filename FROM image_blobs WHERE digest = :digest AND ref_count <= 0 FOR UPDATE",
+            nativeQuery = true)
+    Optional<String> lockUnreferenced(@Param("digest") String digest);
+    
+    // Claims the digest while an orphaned file is deleted; does nothing if a row already exists
+    @Modifying
+    @Query(value = "INSERT INTO image_blobs (digest, filename, size_bytes, ref_count, stored, created_at, released_at) " +
+            "VALUES (:digest, :filename, 0, 0, false, :now, :now) ON CONFLICT (digest) DO NOTHING",
+            nativeQuery = true)
+    int insertPlaceholder(@Param("digest") String digest, @Param("filename") String filename,
+                          @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.stored = true WHERE b.digest = :digest")
+    int markStored(@Param("digest") String digest);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.digest = :digest AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("digest") String digest);
+}
@@ -8,14 +8,25 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PairingCodeRepository extends JpaRepository<PairingCode, Long> {
-    Optional<PairingCode> findByCodeAndUsedFalseAndExpiresAtAfter(String code, LocalDateTime now);
+    List<PairingCode> findByUsedFalseAndExpiresAtAfter(LocalDateTime now);
+    
+    Optional<PairingCode> findFirstByOwnerUserIdAndUsedFalseAndExpiresAtAfterOrderByExpiresAtDesc(
+            Long ownerUserId, LocalDateTime now);
+    
+    // Lapsed rows still hold their code in the unique index until marked used
+    @Modifying
+    @Query(value = "UPDATE pairing_codes SET used = true WHERE code = :code AND used = false AND expires_at <= :now",
+            nativeQuery = true)
+    int retireExpired(@Param("code") String code, @Param("now") LocalDateTime now);
     
     @Modifying
-    @Query("DELETE FROM PairingCode p WHERE p.expiresAt < :now OR p.used = true")
-    void deleteExpiredOrUsed(@Param("now") LocalDateTime now);
+    @Query(value = "UPDATE pairing_codes SET used = true WHERE owner_user_id = :ownerUserId AND used = false",
+            nativeQuery = true)
+    int invalidateOwner(@Param("ownerUserId") Long ownerUserId);
 }
 
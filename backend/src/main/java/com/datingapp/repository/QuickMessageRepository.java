@@ -2,13 +2,20 @@ package com.datingapp.repository;
 
 import com.datingapp.entity.QuickMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
 public interface QuickMessageRepository extends JpaRepository<QuickMessage, Long> {
     List<QuickMessage> findByCoupleIdOrderByCreatedAtAsc(Long coupleId);
-    long countByCoupleId(Long coupleId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM QuickMessage m WHERE m.id = :id AND m.coupleId = :coupleId")
+    int deleteByIdAndCoupleId(@Param("id") Long id, @Param("coupleId") Long coupleId);
 }
-
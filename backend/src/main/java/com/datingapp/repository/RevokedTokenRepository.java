@@ -0,0 +1,15 @@
+package com.datingapp.repository;
+
+import com.datingapp.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    List<RevokedToken> findByExpiresAtAfter(LocalDateTime now);
+    
+    List<RevokedToken> findByRevokedAtAfter(LocalDateTime since);
+}
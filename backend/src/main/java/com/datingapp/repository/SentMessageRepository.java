@@ -0,0 +1,30 @@
+package com.datingapp.repository;
+
+import com.datingapp.entity.SentMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Keyset queries on (created_at, id); each one is a range scan of idx_sent_couple_created
+@Repository
+public interface SentMessageRepository extends JpaRepository<SentMessage, Long> {
+    @Query(value = "SELECT * FROM sent_messages WHERE couple_id = :coupleId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<SentMessage> findLatest(@Param("coupleId") Long coupleId, @Param("limit") int limit);
+    
+    @Query(value = "SELECT * FROM sent_messages WHERE couple_id = :coupleId " +
+            "AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<SentMessage> findBefore(@Param("coupleId") Long coupleId, @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id, @Param("limit") int limit);
+    
+    @Query(value = "SELECT * FROM sent_messages WHERE couple_id = :coupleId " +
+            "AND (created_at, id) > (:createdAt, :id) " +
+            "ORDER BY created_at ASC, id ASC LIMIT :limit", nativeQuery = true)
+    List<SentMessage> findAfter(@Param("coupleId") Long coupleId, @Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id, @Param("limit") int limit);
+}
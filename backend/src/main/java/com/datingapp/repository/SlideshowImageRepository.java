@@ -2,19 +2,59 @@ package com.datingapp.repository;
 
 import com.datingapp.entity.SlideshowImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SlideshowImageRepository extends JpaRepository<SlideshowImage, Long> {
-    List<SlideshowImage> findByCoupleIdOrderByOrderIndexAsc(Long coupleId);
+    List<SlideshowImage> findByCoupleIdOrderByOrderIndexAscIdAsc(Long coupleId);
+    
+    @Query("SELECT s.id FROM SlideshowImage s WHERE s.coupleId = :coupleId ORDER BY s.orderIndex, s.id")
+    List<Long> findIdsInOrder(@Param("coupleId") Long coupleId);
+    
+    Optional<SlideshowImage> findByIdAndCoupleId(Long id, Long coupleId);
+    
+    @Query("SELECT s.orderIndex FROM SlideshowImage s WHERE s.id = :id AND s.coupleId = :coupleId")
+    Optional<Integer> findOrderIndex(@Param("id") Long id, @Param("coupleId") Long coupleId);
+    
+    // Nearest neighbouring keys, ignoring the image being moved
+    @Query("SELECT MAX(s.orderIndex) FROM SlideshowImage s " +
+            "WHERE s.coupleId = :coupleId AND s.orderIndex < :orderIndex AND s.id <> :excludedId")
+    Integer findOrderIndexBelow(@Param("coupleId") Long coupleId, @Param("orderIndex") Integer orderIndex,
+                                @Param("excludedId") Long excludedId);
+    
+    @Query("SELECT MIN(s.orderIndex) FROM SlideshowImage s " +
+            "WHERE s.coupleId = :coupleId AND s.orderIndex > :orderIndex AND s.id <> :excludedId")
+    Integer findOrderIndexAbove(@Param("coupleId") Long coupleId, @Param("orderIndex") Integer orderIndex,
+                                @Param("excludedId") Long excludedId);
+    
+    @Query("SELECT COUNT(s) FROM SlideshowImage s WHERE s.coupleId = :coupleId " +
+            "AND s.orderIndex > :lower AND s.orderIndex < :upper AND s.id <> :excludedId")
+    long countBetween(@Param("coupleId") Long coupleId, @Param("lower") Integer lower, @Param("upper") Integer upper,
+                      @Param("excludedId") Long excludedId);
+    
+    long countByCoupleId(Long coupleId);
     
     @Query("SELECT MAX(s.orderIndex) FROM SlideshowImage s WHERE s.coupleId = :coupleId")
     Integer findMaxOrderIndexByCoupleId(@Param("coupleId") Long coupleId);
     
+    @Transactional
+    @Modifying
+    @Query("UPDATE SlideshowImage s SET s.thumbnailUrl = :thumbnailUrl, s.displayUrl = :displayUrl, "
+            + "s.blurhash = :blurhash WHERE s.id = :id")
+    int updateVariants(@Param("id") Long id, @Param("thumbnailUrl") String thumbnailUrl,
+                       @Param("displayUrl") String displayUrl, @Param("blurhash") String blurhash);
+    
+    @Modifying
+    @Query("UPDATE SlideshowImage s SET s.orderIndex = :orderIndex WHERE s.id = :id")
+    int updateOrderIndex(@Param("id") Long id, @Param("orderIndex") Integer orderIndex);
+    
     void deleteByCoupleId(Long coupleId);
 }
 
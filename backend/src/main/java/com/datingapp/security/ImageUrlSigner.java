@@ -0,0 +1,130 @@
+package com.datingapp.security;
+
+import com.datingapp.metrics.MetricsSource;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues and checks short-lived capability URLs for {@code /uploads/} files.
+ * A URL carries its expiry and a truncated HMAC-SHA256 of the file name and
+ * that expiry, so serving it needs neither a JWT nor a database lookup, and
+ * the path is left out of the security filter chain entirely.
+ *
+ * <p>Expiries are rounded up to {@code app.slideshow.url-signing.granularity-seconds}
+ * so listings fetched close together hand out identical URLs and the client
+ * can keep using its cached copy. Across expiries the client keys its cache
+ * on the path, which names the content.
+ */
+@Component
+public class ImageUrlSigner implements MetricsSource {
+    public static final String EXPIRES_PARAM = "exp";
+    public static final String SIGNATURE_PARAM = "sig";
+    
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final String URL_PREFIX = "/uploads/";
+    
+    @Value("${app.slideshow.url-signing.secret}")
+    private String secret;
+    
+    @Value("${app.slideshow.url-signing.ttl-seconds:3600}")
+    private long ttlSeconds;
+    
+    @Value("${app.slideshow.url-signing.granularity-seconds:3600}")
+    private long granularitySeconds;
+    
+    private SecretKeySpec key;
+    
+    // Mac instances are not thread-safe and costly to look up, so each thread keeps its own
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    
+    private final LongAdder signed = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        // Derived rather than used directly, since the secret may be shared with JWT signing
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        key = new SecretKeySpec(mac.doFinal("image-url".getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+    }
+    
+    /** Signs an {@code /uploads/} URL; anything else, including null, is returned unchanged. */
+    public String sign(String url) {
+        return sign(url, System.currentTimeMillis() / 1000);
+    }
+    
+    /** Signs as {@link #sign(String)} would at the given epoch second. */
+    public String sign(String url, long nowSeconds) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return url;
+        }
+        long expiresAt = ((nowSeconds + ttlSeconds) / granularitySeconds + 1) * granularitySeconds;
+        String filename = url.substring(URL_PREFIX.length());
+        signed.increment();
+        return url + "?" + EXPIRES_PARAM + "=" + expiresAt
+                + "&" + SIGNATURE_PARAM + "=" + Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(signature(filename, expiresAt));
+    }
+    
+    /** Checks the expiry and signature of a request for the given file. Either parameter may be null. */
+    public boolean verify(String filename, String expires, String signature) {
+        if (expires == null || signature == null) {
+            rejected.increment();
+            return false;
+        }
+        long expiresAt;
+        byte[] presented;
+        try {
+            expiresAt = Long.parseLong(expires);
+            presented = Base64.getUrlDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            rejected.increment();
+            return false;
+        }
+        boolean valid = expiresAt >= System.currentTimeMillis() / 1000
+                && MessageDigest.isEqual(presented, signature(filename, expiresAt));
+        (valid ? accepted : rejected).increment();
+        return valid;
+    }
+    
+    private byte[] signature(String filename, long expiresAt) {
+        Mac mac = macs.get();
+        mac.update(filename.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) '\n');
+        mac.update(Long.toString(expiresAt).getBytes(StandardCharsets.US_ASCII));
+        return Arrays.copyOf(mac.doFinal(), SIGNATURE_BYTES);
+    }
+    
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is unavailable", e);
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "imageUrls";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        return Map.of("signed", signed.sum(), "accepted", accepted.sum(), "rejected", rejected.sum());
+    }
+}
@@ -0,0 +1,31 @@
+package com.datingapp.security;
+
+import com.datingapp.service.CoupleMembership;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Immutable view of a verified token, stored as the principal of the
+ * request's {@code Authentication} so controllers never re-parse the JWT.
+ */
+@Value
+public class JwtPrincipal {
+    Long userId;
+    String username;
+    String type;
+    String tokenId;
+    Instant issuedAt;
+    Instant expiresAt;
+    
+    // Couple context embedded at issue time, null if the user was not paired then
+    CoupleMembership couple;
+    
+    // Refresh token family issued with this token, null for tokens that predate the claim
+    UUID refreshFamilyId;
+    
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -1,18 +1,37 @@
 package com.datingapp.security;
 
+import com.datingapp.service.CoupleMembership;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+    
+    private static final String COUPLE_ID = "coupleId";
+    private static final String PARTNER_ID = "partnerId";
+    private static final String PAIRED_AT = "pairedAt";
+    private static final String FAMILY_ID = "fam";
+    private static final String GENERATION = "gen";
+    // iat only has second precision, too coarse to order a token against a revocation in the same second
+    private static final String ISSUED_AT_MS = "iatMs";
+    
     @Value("${app.jwt.secret}")
     private String secret;
     
@@ -22,72 +41,148 @@ public class JwtUtil {
     @Value("${app.jwt.refresh-expiration}")
     private Long refreshExpiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
+    // Key and parser are immutable and thread-safe, so build them once
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
     
     public String generateAccessToken(Long userId, String username) {
-        return Jwts.builder()
+        return generateAccessToken(userId, username, null);
+    }
+    
+    /**
+     * Issues an access token that also carries the couple context when
+     * {@code couple} is non-null, so requests can skip the membership lookup.
+     */
+    public String generateAccessToken(Long userId, String username, CoupleMembership couple) {
+        return generateAccessToken(userId, username, couple, null);
+    }
+    
+    /**
+     * As above, also naming the refresh token family issued alongside, so
+     * logging out with the access token can revoke that family too.
+     */
+    public String generateAccessToken(Long userId, String username, CoupleMembership couple, UUID familyId) {
+        long now = System.currentTimeMillis();
+        JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userId.toString())
                 .claim("username", username)
-                .claim("type", "access")
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+                .claim("type", ACCESS_TOKEN)
+                .claim(ISSUED_AT_MS, now)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration));
+        
+        if (familyId != null) {
+            builder.claim(FAMILY_ID, familyId.toString());
+        }
+        if (couple != null) {
+            builder.claim(COUPLE_ID, couple.getCoupleId())
+                    .claim(PARTNER_ID, couple.getPartnerId())
+                    .claim(PAIRED_AT, couple.getPairedAt().toString());
+        }
+        return builder.signWith(signingKey).compact();
     }
     
-    public String generateRefreshToken(Long userId, String username) {
+    public String generateRefreshToken(Long userId, String username, UUID familyId, int generation) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userId.toString())
                 .claim("username", username)
-                .claim("type", "refresh")
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + refreshExpiration))
-                .signWith(getSigningKey())
+                .claim("type", REFRESH_TOKEN)
+                .claim(FAMILY_ID, familyId.toString())
+                .claim(GENERATION, generation)
+                .claim(ISSUED_AT_MS, now)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + refreshExpiration))
+                .signWith(signingKey)
                 .compact();
     }
     
-    public Long getUserIdFromToken(String token) {
-        return Long.parseLong(getClaimFromToken(token, Claims::getSubject));
-    }
-    
-    public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, claims -> claims.get("username", String.class));
-    }
-    
-    public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
+    /**
+     * Verifies an access token once and returns its principal. Repeated calls with
+     * the same token are served from {@link VerifiedTokenCache} until it expires.
+     *
+     * @throws JwtException if the signature is invalid, the token is expired or it
+     *                      is not an access token
+     */
+    public JwtPrincipal verifyAccessToken(String token) {
+        JwtPrincipal principal = verifiedTokenCache.get(token);
+        if (principal == null) {
+            principal = toPrincipal(getAllClaimsFromToken(token));
+            verifiedTokenCache.put(token, principal);
+        }
+        
+        if (!ACCESS_TOKEN.equals(principal.getType())) {
+            throw new JwtException("Not an access token");
+        }
+        return principal;
     }
     
-    public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Verifies a refresh token. Refresh tokens are exchanged rarely, so they are
+     * not cached.
+     *
+     * @throws JwtException if the token is invalid, expired, not a refresh token or
+     *                      predates token families
+     */
+    public RefreshTokenClaims verifyRefreshToken(String token) {
+        Claims claims = getAllClaimsFromToken(token);
+        if (!REFRESH_TOKEN.equals(claims.get("type", String.class)) || !claims.containsKey(FAMILY_ID)) {
+            throw new JwtException("Not a refresh token");
+        }
+        return new RefreshTokenClaims(
+                Long.parseLong(claims.getSubject()),
+                claims.get("username", String.class),
+                UUID.fromString(claims.get(FAMILY_ID, String.class)),
+                claims.get(GENERATION, Integer.class),
+                issuedAt(claims),
+                claims.getExpiration().toInstant()
+        );
     }
     
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
     
-    public Boolean isTokenExpired(String token) {
-        try {
-            final Date expiration = getExpirationDateFromToken(token);
-            return expiration.before(new Date());
-        } catch (Exception e) {
-            return true;
-        }
+    // Tokens issued before the millisecond claim fall back to iat
+    private static Instant issuedAt(Claims claims) {
+        Long issuedAtMs = claims.get(ISSUED_AT_MS, Long.class);
+        return issuedAtMs != null ? Instant.ofEpochMilli(issuedAtMs) : claims.getIssuedAt().toInstant();
     }
     
-    public Boolean validateToken(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
+    private static JwtPrincipal toPrincipal(Claims claims) {
+        Long userId = Long.parseLong(claims.getSubject());
+        
+        CoupleMembership couple = null;
+        if (claims.containsKey(COUPLE_ID)) {
+            couple = new CoupleMembership(
+                    claims.get(COUPLE_ID, Long.class),
+                    userId,
+                    claims.get(PARTNER_ID, Long.class),
+                    LocalDateTime.parse(claims.get(PAIRED_AT, String.class)));
         }
+        
+        return new JwtPrincipal(
+                userId,
+                claims.get("username", String.class),
+                claims.get("type", String.class),
+                claims.getId(),
+                issuedAt(claims),
+                claims.getExpiration().toInstant(),
+                couple,
+                claims.containsKey(FAMILY_ID) ? UUID.fromString(claims.get(FAMILY_ID, String.class)) : null
+        );
     }
 }
-
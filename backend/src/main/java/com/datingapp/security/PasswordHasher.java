@@ -0,0 +1,119 @@
+package com.datingapp.security;
+
+import com.datingapp.exception.ServiceBusyException;
+import com.datingapp.metrics.MetricsSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a dedicated, bounded pool so a burst of logins
+ * cannot occupy every request thread. When both the workers and the queue are
+ * full, work is rejected immediately with {@link ServiceBusyException}.
+ */
+@Component
+public class PasswordHasher implements MetricsSource {
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Value("${app.security.password-hashing.threads:4}")
+    private int threads;
+    
+    @Value("${app.security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+    
+    @Value("${app.security.password-hashing.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+    
+    private ThreadPoolExecutor executor;
+    
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+    
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    public boolean needsUpgrade(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> hashing) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timed(hashing), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many login attempts in progress, please retry", retryAfterSeconds);
+        }
+    }
+    
+    private <T> T timed(Supplier<T> hashing) {
+        long start = System.nanoTime();
+        try {
+            return hashing.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            hashCount.increment();
+            hashNanos.add(elapsed);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "passwordHashing";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        long count = hashCount.sum();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("activeWorkers", executor.getActiveCount());
+        metrics.put("hashes", count);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("avgLatencyMs", count == 0 ? 0 : hashNanos.sum() / count / 1_000_000.0);
+        metrics.put("maxLatencyMs", maxHashNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+}
@@ -0,0 +1,63 @@
+package com.datingapp.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs right after {@link JwtAuthenticationFilter} and answers 429 for users
+ * over their {@link RateLimiter} budget, before the request reaches a
+ * controller. Unauthenticated requests pass through and are rejected by
+ * authorization as before.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (rateLimiter.isEnabled() && authentication != null
+                && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            RateLimiter.Route route = rateLimiter.match(request.getMethod(), path);
+            if (route != null) {
+                long waitNanos = rateLimiter.tryAcquire(route, principal.getUserId());
+                if (waitNanos > 0) {
+                    reject(response, waitNanos);
+                    return;
+                }
+            }
+        }
+        chain.doFilter(request, response);
+    }
+    
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", "Too many requests, please slow down"));
+    }
+}
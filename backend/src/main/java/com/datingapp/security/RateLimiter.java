@@ -0,0 +1,144 @@
+package com.datingapp.security;
+
+import com.datingapp.config.RateLimitProperties;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.util.LongLongHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user token buckets for the routes listed under {@code app.rate-limit}.
+ * A bucket is stored as a single long, the time at which it would be full
+ * again (the GCRA form of a token bucket), in a primitive map per lock stripe,
+ * so checking a request allocates nothing. Buckets that have refilled are
+ * indistinguishable from new ones and are dropped periodically.
+ */
+@Component
+public class RateLimiter implements MetricsSource {
+    private static final int STRIPES = 32; // power of two
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    
+    @Autowired
+    private RateLimitProperties properties;
+    
+    private List<Route> routes = List.of();
+    
+    @PostConstruct
+    void init() {
+        List<Route> compiled = new ArrayList<>();
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            if (policy.getCapacity() <= 0 || policy.getRefillPerMinute() <= 0) {
+                throw new IllegalStateException("Rate limit policy " + policy.getName()
+                        + " needs a positive capacity and refill-per-minute");
+            }
+            compiled.add(new Route(policy));
+        }
+        routes = List.copyOf(compiled);
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled() && !routes.isEmpty();
+    }
+    
+    /** Returns the route limiting this request, or null if none applies. */
+    public Route match(String method, String path) {
+        for (Route route : routes) {
+            if ((route.method == null || route.method.equalsIgnoreCase(method))
+                    && PATH_MATCHER.match(route.pattern, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Takes one token from the user's bucket for the route.
+     *
+     * @return 0 if the request may proceed, otherwise nanoseconds until a token is available
+     */
+    public long tryAcquire(Route route, long userId) {
+        long now = System.nanoTime();
+        LongLongHashMap stripe = route.stripes[LongLongHashMap.mix(userId) & (STRIPES - 1)];
+        synchronized (stripe) {
+            long fullAt = Math.max(stripe.get(userId, now), now);
+            long wait = fullAt + route.intervalNanos - now - route.burstNanos;
+            if (wait > 0) {
+                route.rejected.increment();
+                return wait;
+            }
+            stripe.put(userId, fullAt + route.intervalNanos);
+        }
+        route.allowed.increment();
+        return 0;
+    }
+    
+    @Scheduled(fixedRateString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        for (Route route : routes) {
+            for (LongLongHashMap stripe : route.stripes) {
+                synchronized (stripe) {
+                    stripe.removeValuesBelow(now);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "rateLimit";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new TreeMap<>();
+        for (Route route : routes) {
+            int buckets = 0;
+            for (LongLongHashMap stripe : route.stripes) {
+                synchronized (stripe) {
+                    buckets += stripe.size();
+                }
+            }
+            metrics.put(route.name + ".buckets", buckets);
+            metrics.put(route.name + ".allowed", route.allowed.sum());
+            metrics.put(route.name + ".rejected", route.rejected.sum());
+        }
+        return metrics;
+    }
+    
+    public static final class Route {
+        final String name;
+        final String pattern;
+        final String method;
+        final long intervalNanos; // time to earn back one token
+        final long burstNanos; // how far requests may run ahead of the refill rate
+        final LongLongHashMap[] stripes = new LongLongHashMap[STRIPES];
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        
+        Route(RateLimitProperties.Policy policy) {
+            name = policy.getName();
+            pattern = policy.getPath();
+            method = policy.getMethod() == null || policy.getMethod().isBlank() ? null : policy.getMethod();
+            intervalNanos = TimeUnit.MINUTES.toNanos(1) / policy.getRefillPerMinute();
+            burstNanos = intervalNanos * policy.getCapacity();
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new LongLongHashMap();
+            }
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+}
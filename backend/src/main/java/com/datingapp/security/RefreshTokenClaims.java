@@ -0,0 +1,20 @@
+package com.datingapp.security;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Verified contents of a refresh token. Every token belongs to a rotation
+ * family and carries its generation within that family.
+ */
+@Value
+public class RefreshTokenClaims {
+    Long userId;
+    String username;
+    UUID familyId;
+    int generation;
+    Instant issuedAt;
+    Instant expiresAt;
+}
@@ -0,0 +1,119 @@
+package com.datingapp.security;
+
+import com.datingapp.exception.InvalidTokenException;
+import com.datingapp.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rotation state for refresh tokens: one row per token family in
+ * {@code refresh_token_families} holding the only generation that may still be
+ * exchanged. Presenting an older generation means the token was copied, so the
+ * whole family is revoked.
+ *
+ * <p>Each rotation is a single conditional UPDATE on the family row, so two
+ * instances racing on the same token cannot both succeed.
+ */
+@Component
+public class RefreshTokenStore implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenStore.class);
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO refresh_token_families (family_id, user_id, generation, revoked, expires_at) "
+            + "VALUES (?, ?, 0, FALSE, ?)";
+    
+    private static final String ROTATE_SQL =
+            "UPDATE refresh_token_families SET generation = generation + 1, expires_at = ? "
+            + "WHERE family_id = ? AND user_id = ? AND generation = ? AND NOT revoked AND expires_at > ?";
+    
+    // Only reached when ROTATE_SQL matched nothing; a live family at another generation means reuse
+    private static final String REVOKE_REUSED_SQL =
+            "UPDATE refresh_token_families SET revoked = TRUE "
+            + "WHERE family_id = ? AND user_id = ? AND generation <> ? AND NOT revoked AND expires_at > ?";
+    
+    private static final String REVOKE_SQL =
+            "UPDATE refresh_token_families SET revoked = TRUE WHERE family_id = ? AND user_id = ? AND NOT revoked";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.jwt.refresh-expiration}")
+    private Long refreshExpiration;
+    
+    private final LongAdder started = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder reuseDetected = new LongAdder();
+    
+    public UUID startFamily(Long userId) {
+        UUID familyId = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_SQL, familyId.toString(), userId,
+                new Timestamp(System.currentTimeMillis() + refreshExpiration));
+        started.increment();
+        return familyId;
+    }
+    
+    /**
+     * Exchanges the presented generation for the next one.
+     *
+     * @return the new generation to embed in the replacement refresh token
+     * @throws InvalidTokenException if the family is unknown, expired or revoked, or
+     *                               if the token was already exchanged (reuse)
+     */
+    public int rotate(RefreshTokenClaims claims) {
+        String familyId = claims.getFamilyId().toString();
+        long now = System.currentTimeMillis();
+        Timestamp nowTimestamp = new Timestamp(now);
+        
+        int rotated = jdbcTemplate.update(ROTATE_SQL, new Timestamp(now + refreshExpiration),
+                familyId, claims.getUserId(), claims.getGeneration(), nowTimestamp);
+        if (rotated == 1) {
+            rotations.increment();
+            return claims.getGeneration() + 1;
+        }
+        
+        int revoked = jdbcTemplate.update(REVOKE_REUSED_SQL,
+                familyId, claims.getUserId(), claims.getGeneration(), nowTimestamp);
+        if (revoked == 1) {
+            reuseDetected.increment();
+            log.warn("Refresh token reuse detected for user {}, family {} revoked", claims.getUserId(), familyId);
+        }
+        throw new InvalidTokenException("Refresh token is no longer valid");
+    }
+    
+    /** Revokes the family on logout, so none of its refresh tokens can be exchanged any more. */
+    public void revokeFamily(UUID familyId, Long userId) {
+        jdbcTemplate.update(REVOKE_SQL, familyId.toString(), userId);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-store.cleanup-interval-ms:3600000}")
+    public void evictExpired() {
+        jdbcTemplate.update("DELETE FROM refresh_token_families WHERE expires_at < ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "refreshTokens";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("started", started.sum());
+        metrics.put("rotations", rotations.sum());
+        metrics.put("reuseDetected", reuseDetected.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,145 @@
+package com.datingapp.security;
+
+import com.datingapp.entity.RevokedToken;
+import com.datingapp.repository.RevokedTokenRepository;
+import com.datingapp.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory revocation list consulted on every authenticated request instead of
+ * the {@code users} table. Revoked users are held in a primitive map of
+ * userId to the epoch millisecond before which their tokens are invalid;
+ * revoked single tokens are held by jti. Both are dropped once every token
+ * they cover would have expired anyway.
+ *
+ * <p>The list is loaded from {@code revoked_tokens} at startup and then polled
+ * for rows added by other instances. Each poll re-reads a window of recent
+ * revocations rather than rows past the last seen id, since ids are assigned
+ * before commit and a slower transaction can commit a lower id later.
+ */
+@Component
+public class TokenDenyList {
+    private static final Logger log = LoggerFactory.getLogger(TokenDenyList.class);
+    
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    
+    @Value("${app.jwt.refresh-expiration}")
+    private Long refreshExpiration;
+    
+    // Longer than any revoking transaction takes to commit plus clock skew between instances
+    @Value("${app.jwt.deny-list-overlap-ms:60000}")
+    private long overlapMs;
+    
+    // Replaced wholesale on write so readers never need a lock; writes are rare
+    private volatile LongLongHashMap revokedUsers = new LongLongHashMap();
+    
+    private final Map<String, Instant> revokedTokenIds = new ConcurrentHashMap<>();
+    
+    private LocalDateTime lastPolledAt;
+    
+    public boolean isRevoked(JwtPrincipal principal) {
+        if (isUserRevoked(principal.getUserId(), principal.getIssuedAt())) {
+            return true;
+        }
+        return principal.getTokenId() != null && revokedTokenIds.containsKey(principal.getTokenId());
+    }
+    
+    public boolean isUserRevoked(Long userId, Instant issuedAt) {
+        long revokedBefore = revokedUsers.get(userId, 0L);
+        return revokedBefore != 0L && issuedAt.toEpochMilli() <= revokedBefore;
+    }
+    
+    public void revokeToken(JwtPrincipal principal) {
+        if (principal.getTokenId() == null) {
+            // Tokens issued before jti existed can only be revoked per user
+            revokeUser(principal.getUserId());
+            return;
+        }
+        RevokedToken revoked = new RevokedToken();
+        revoked.setTokenId(principal.getTokenId());
+        revoked.setRevokedAt(LocalDateTime.now());
+        revoked.setExpiresAt(LocalDateTime.ofInstant(principal.getExpiresAt(), ZoneId.systemDefault()));
+        apply(revokedTokenRepository.save(revoked));
+    }
+    
+    public void revokeUser(Long userId) {
+        RevokedToken revoked = new RevokedToken();
+        revoked.setUserId(userId);
+        revoked.setRevokedAt(LocalDateTime.now());
+        // No token issued before now can outlive the refresh token lifetime
+        revoked.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000));
+        apply(revokedTokenRepository.save(revoked));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<RevokedToken> active = revokedTokenRepository.findByExpiresAtAfter(startedAt);
+        active.forEach(this::apply);
+        lastPolledAt = startedAt;
+        log.info("Loaded {} active token revocations", active.size());
+    }
+    
+    @Scheduled(fixedDelayString = "${app.jwt.deny-list-refresh-ms:10000}")
+    public synchronized void refresh() {
+        if (lastPolledAt == null) {
+            return;
+        }
+        // Applying a revocation twice is harmless, so the window simply overlaps the previous poll
+        LocalDateTime startedAt = LocalDateTime.now();
+        for (RevokedToken revoked : revokedTokenRepository.findByRevokedAtAfter(
+                lastPolledAt.minusNanos(overlapMs * 1_000_000))) {
+            apply(revoked);
+        }
+        lastPolledAt = startedAt;
+        prune();
+    }
+    
+    private void prune() {
+        Instant now = Instant.now();
+        revokedTokenIds.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        
+        // A user revocation only matters while tokens issued before it can still be valid
+        LongLongHashMap pruned = revokedUsers.copy();
+        if (pruned.removeValuesBelow(now.toEpochMilli() - refreshExpiration) > 0) {
+            revokedUsers = pruned;
+        }
+    }
+    
+    private synchronized void apply(RevokedToken revoked) {
+        if (!revoked.getExpiresAt().isAfter(LocalDateTime.now())) {
+            return;
+        }
+        
+        if (revoked.getTokenId() != null) {
+            revokedTokenIds.put(revoked.getTokenId(), toInstant(revoked.getExpiresAt()));
+        }
+        if (revoked.getUserId() != null) {
+            long revokedBefore = toInstant(revoked.getRevokedAt()).toEpochMilli();
+            if (revokedUsers.get(revoked.getUserId(), 0L) < revokedBefore) {
+                LongLongHashMap updated = revokedUsers.copy();
+                updated.put(revoked.getUserId(), revokedBefore);
+                revokedUsers = updated;
+            }
+        }
+    }
+    
+    private static Instant toInstant(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
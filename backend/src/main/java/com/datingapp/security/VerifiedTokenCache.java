@@ -0,0 +1,83 @@
+package com.datingapp.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded cache of already verified tokens, keyed by the SHA-256 digest of the
+ * raw token. Entries are only returned while the token itself is unexpired, so
+ * a hit never extends a token's lifetime.
+ */
+@Component
+public class VerifiedTokenCache {
+    // Eviction frees this share of the capacity at once, so a full pass runs once per that many inserts
+    private static final double EVICTION_FRACTION = 0.1;
+    
+    @Value("${app.jwt.claims-cache-size:10000}")
+    private int maxEntries;
+    
+    private final Map<String, JwtPrincipal> entries = new ConcurrentHashMap<>();
+    
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    public JwtPrincipal get(String token) {
+        String key = digest(token);
+        JwtPrincipal principal = entries.get(key);
+        if (principal == null) {
+            return null;
+        }
+        if (principal.isExpired(Instant.now())) {
+            entries.remove(key, principal);
+            return null;
+        }
+        return principal;
+    }
+    
+    public void put(String token, JwtPrincipal principal) {
+        // Other threads insert meanwhile; the map may briefly run a little over its bound
+        if (entries.size() >= maxEntries && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+        entries.put(digest(token), principal);
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    private void evict() {
+        Instant now = Instant.now();
+        entries.values().removeIf(principal -> principal.isExpired(now));
+        
+        // Still too full: drop arbitrary entries, they are simply re-verified on next use
+        int lowWaterMark = (int) (maxEntries * (1 - EVICTION_FRACTION));
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > lowWaterMark && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+    
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -3,16 +3,31 @@ package com.datingapp.service;
 import com.datingapp.dto.AuthResponse;
 import com.datingapp.dto.LoginRequest;
 import com.datingapp.dto.RegisterRequest;
+import com.datingapp.dto.TokenRefreshResponse;
 import com.datingapp.entity.User;
+import com.datingapp.exception.InvalidTokenException;
+import com.datingapp.exception.ServiceBusyException;
 import com.datingapp.repository.UserRepository;
+import com.datingapp.security.JwtPrincipal;
 import com.datingapp.security.JwtUtil;
+import com.datingapp.security.PasswordHasher;
+import com.datingapp.security.RefreshTokenClaims;
+import com.datingapp.security.RefreshTokenStore;
+import com.datingapp.security.TokenDenyList;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AuthService {
@@ -21,46 +36,130 @@ public class AuthService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
     
     @Autowired
     private JwtUtil jwtUtil;
     
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private TokenDenyList tokenDenyList;
+    
+    @Autowired
+    private CoupleMembershipIndex coupleMembershipIndex;
+    
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+    
+    @Value("${app.security.password-hashing.completion-threads:4}")
+    private int completionThreads;
+    
+    // Checked against for unknown usernames so both login paths cost one hash
+    private String unknownUserHash;
+    
+    // Database and token work after a hash completes, kept off the hashing pool so it stays CPU bound.
+    // Unbounded: the hashing pool's queue already limits how many logins can be in flight.
+    private ExecutorService completionExecutor;
     
-    @Transactional
-    public AuthResponse register(RegisterRequest request) {
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        completionExecutor = Executors.newFixedThreadPool(completionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "auth-completion-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        unknownUserHash = passwordHasher.encode(UUID.randomUUID().toString()).join();
+    }
+    
+    @PreDestroy
+    void stop() {
+        completionExecutor.shutdown();
+    }
+    
+    public CompletableFuture<AuthResponse> register(RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new RuntimeException("Username already exists");
         }
         
-        User user = new User();
-        user.setUsername(request.getUsername());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-        user.setDisplayName(request.getDisplayName());
-        user.setDateOfBirth(request.getDateOfBirth());
-        
-        user = userRepository.save(user);
-        
-        String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getUsername());
-        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername());
+        // Hash before touching the database so no connection is held while hashing
+        return passwordHasher.encode(request.getPassword()).thenApplyAsync(passwordHash -> {
+            User user = new User();
+            user.setUsername(request.getUsername());
+            user.setPasswordHash(passwordHash);
+            user.setDisplayName(request.getDisplayName());
+            user.setDateOfBirth(request.getDateOfBirth());
+            
+            user = userRepository.save(user);
+            
+            return issueTokens(user, null);
+        }, completionExecutor);
+    }
+    
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        Optional<User> found = userRepository.findByUsername(request.getUsername());
+        String passwordHash = found.map(User::getPasswordHash).orElse(unknownUserHash);
         
-        return new AuthResponse(accessToken, refreshToken, user.getId(), user.getUsername(), user.getDisplayName());
+        return passwordHasher.matches(request.getPassword(), passwordHash).thenApplyAsync(matches -> {
+            if (!matches || found.isEmpty()) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            User user = found.get();
+            
+            if (passwordHasher.needsUpgrade(user.getPasswordHash())) {
+                upgradePasswordHash(user, request.getPassword());
+            }
+            
+            return issueTokens(user, coupleMembershipIndex.find(user.getId()).orElse(null));
+        }, completionExecutor);
     }
     
-    public AuthResponse login(LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
+    /**
+     * Exchanges a refresh token for a new access/refresh pair. This costs one HMAC
+     * verification and a single-row UPDATE; no password hash.
+     */
+    public TokenRefreshResponse refresh(String refreshToken) {
+        RefreshTokenClaims claims;
+        try {
+            claims = jwtUtil.verifyRefreshToken(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+        if (tokenDenyList.isUserRevoked(claims.getUserId(), claims.getIssuedAt())) {
+            throw new InvalidTokenException("Refresh token has been revoked");
+        }
         
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        int generation = refreshTokenStore.rotate(claims);
+        CoupleMembership couple = coupleMembershipIndex.find(claims.getUserId()).orElse(null);
         
-        String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getUsername());
-        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername());
+        return new TokenRefreshResponse(
+                jwtUtil.generateAccessToken(claims.getUserId(), claims.getUsername(), couple, claims.getFamilyId()),
+                jwtUtil.generateRefreshToken(claims.getUserId(), claims.getUsername(), claims.getFamilyId(), generation)
+        );
+    }
+    
+    public void logout(JwtPrincipal principal) {
+        tokenDenyList.revokeToken(principal);
+        if (principal.getRefreshFamilyId() != null) {
+            refreshTokenStore.revokeFamily(principal.getRefreshFamilyId(), principal.getUserId());
+        }
+    }
+    
+    private void upgradePasswordHash(User user, String rawPassword) {
+        try {
+            passwordHasher.encode(rawPassword).thenAcceptAsync(passwordHash -> {
+                user.setPasswordHash(passwordHash);
+                userRepository.save(user);
+            }, completionExecutor);
+        } catch (ServiceBusyException e) {
+            // Pool is saturated; the hash is upgraded on a later login instead
+        }
+    }
+    
+    public AuthResponse issueTokens(User user, CoupleMembership couple) {
+        UUID familyId = refreshTokenStore.startFamily(user.getId());
+        String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getUsername(), couple, familyId);
+        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername(), familyId, 0);
         
         return new AuthResponse(accessToken, refreshToken, user.getId(), user.getUsername(), user.getDisplayName());
     }
 }
-
@@ -0,0 +1,15 @@
+package com.datingapp.service;
+
+import lombok.Value;
+
+/**
+ * One delivery to a partner, standing in for {@code count} notifications that
+ * arrived within the same coalescing window.
+ */
+@Value
+public class CoalescedNotification {
+    Long recipientId;
+    Long senderId;
+    String message;
+    int count;
+}
@@ -0,0 +1,16 @@
+package com.datingapp.service;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's side of a couple: which couple they belong to and who the partner is.
+ */
+@Value
+public class CoupleMembership {
+    Long coupleId;
+    Long userId;
+    Long partnerId;
+    LocalDateTime pairedAt;
+}
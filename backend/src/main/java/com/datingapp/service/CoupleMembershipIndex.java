@@ -0,0 +1,236 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.Couple;
+import com.datingapp.event.CouplePairedEvent;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.CoupleRepository;
+import com.datingapp.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory userId to couple membership index, so resolving the caller's couple
+ * does not need the {@code user1_id = ? OR user2_id = ?} query.
+ *
+ * <p>Entries live in parallel {@code long[]} columns of an open-addressing table
+ * (userId, coupleId, partnerId, pairedAt in epoch microseconds), so nothing is
+ * boxed. That is 32 bytes per slot; at a load factor between 0.375 and 0.75 an
+ * entry costs 43-85 bytes, i.e. roughly 85-170 MB for a million couples. The
+ * current figure is published as {@code bytesPerEntry}.
+ *
+ * <p>Reads are lock-free optimistic reads; writes (warm-up and new pairings)
+ * take the write lock. A miss falls back to the database, which covers couples
+ * paired on another instance and lookups during warm-up.
+ */
+@Component
+public class CoupleMembershipIndex implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(CoupleMembershipIndex.class);
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int WARM_UP_BATCH_SIZE = 10_000;
+    
+    @Autowired
+    private CoupleRepository coupleRepository;
+    
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(1024);
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public Optional<CoupleMembership> find(Long userId) {
+        CoupleMembership membership = lookup(userId);
+        if (membership != null) {
+            hits.increment();
+            return Optional.of(membership);
+        }
+        
+        misses.increment();
+        Optional<Couple> couple = coupleRepository.findByUserId(userId);
+        couple.ifPresent(this::add);
+        return couple.map(c -> toMembership(c, userId));
+    }
+    
+    /** Looks the user up in memory only; an empty result does not mean the user is unpaired. */
+    public Optional<CoupleMembership> findCached(Long userId) {
+        return Optional.ofNullable(lookup(userId));
+    }
+    
+    public CoupleMembership require(Long userId) {
+        return find(userId).orElseThrow(() -> new RuntimeException("User is not paired"));
+    }
+    
+    public boolean isPaired(Long userId) {
+        return find(userId).isPresent();
+    }
+    
+    public void add(Couple couple) {
+        long pairedAt = toMicros(couple.getPairedAt());
+        long stamp = lock.writeLock();
+        try {
+            put(couple.getUser1Id(), couple.getId(), couple.getUser2Id(), pairedAt);
+            put(couple.getUser2Id(), couple.getId(), couple.getUser1Id(), pairedAt);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @TransactionalEventListener
+    public void onCouplePaired(CouplePairedEvent event) {
+        add(new Couple(event.getCoupleId(), event.getUser1Id(), event.getUser2Id(), event.getPairedAt()));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long lastId = 0;
+        int loaded = 0;
+        List<Couple> batch;
+        do {
+            batch = coupleRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, WARM_UP_BATCH_SIZE));
+            for (Couple couple : batch) {
+                add(couple);
+                lastId = couple.getId();
+            }
+            loaded += batch.size();
+        } while (batch.size() == WARM_UP_BATCH_SIZE);
+        log.info("Couple membership index warmed with {} couples", loaded);
+    }
+    
+    private CoupleMembership lookup(long userId) {
+        long stamp = lock.tryOptimisticRead();
+        CoupleMembership membership = table.get(userId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                membership = table.get(userId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return membership;
+    }
+    
+    private void put(long userId, long coupleId, long partnerId, long pairedAt) {
+        if (table.put(userId, coupleId, partnerId, pairedAt) > table.capacity() * LOAD_FACTOR) {
+            table = table.resize();
+        }
+    }
+    
+    private static CoupleMembership toMembership(Couple couple, Long userId) {
+        Long partnerId = couple.getUser1Id().equals(userId) ? couple.getUser2Id() : couple.getUser1Id();
+        return new CoupleMembership(couple.getId(), userId, partnerId, couple.getPairedAt());
+    }
+    
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "coupleMembershipIndex";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        long stamp = lock.readLock();
+        int size;
+        int capacity;
+        try {
+            size = table.size;
+            capacity = table.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        long footprint = (long) capacity * Table.COLUMNS * Long.BYTES;
+        
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("entries", size);
+        metrics.put("capacity", capacity);
+        metrics.put("footprintBytes", footprint);
+        metrics.put("bytesPerEntry", size == 0 ? 0 : footprint / size);
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        return metrics;
+    }
+    
+    /** Column-oriented open-addressing table; userId 0 marks an empty slot. */
+    private static final class Table {
+        static final int COLUMNS = 4;
+        
+        final long[] userIds;
+        final long[] coupleIds;
+        final long[] partnerIds;
+        final long[] pairedAt;
+        int size;
+        
+        Table(int capacity) {
+            userIds = new long[capacity];
+            coupleIds = new long[capacity];
+            partnerIds = new long[capacity];
+            pairedAt = new long[capacity];
+        }
+        
+        int capacity() {
+            return userIds.length;
+        }
+        
+        CoupleMembership get(long userId) {
+            int slot = slot(userId);
+            if (userIds[slot] != userId) {
+                return null;
+            }
+            return new CoupleMembership(coupleIds[slot], userId, partnerIds[slot], fromMicros(pairedAt[slot]));
+        }
+        
+        int put(long userId, long coupleId, long partnerId, long pairedAtMicros) {
+            int slot = slot(userId);
+            // Values first so an optimistic reader never sees the key without them
+            coupleIds[slot] = coupleId;
+            partnerIds[slot] = partnerId;
+            pairedAt[slot] = pairedAtMicros;
+            if (userIds[slot] != userId) {
+                userIds[slot] = userId;
+                size++;
+            }
+            return size;
+        }
+        
+        Table resize() {
+            Table resized = new Table(capacity() << 1);
+            for (int i = 0; i < userIds.length; i++) {
+                if (userIds[i] != 0) {
+                    resized.put(userIds[i], coupleIds[i], partnerIds[i], pairedAt[i]);
+                }
+            }
+            return resized;
+        }
+        
+        private int slot(long userId) {
+            int mask = userIds.length - 1;
+            int slot = LongLongHashMap.mix(userId) & mask;
+            while (userIds[slot] != 0 && userIds[slot] != userId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
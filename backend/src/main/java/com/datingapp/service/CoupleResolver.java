@@ -0,0 +1,51 @@
+package com.datingapp.service;
+
+import com.datingapp.security.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Resolves a user's couple, preferring the context embedded in the caller's
+ * verified access token and falling back to {@link CoupleMembershipIndex}.
+ * Pairings are never undone, so token claims cannot go stale.
+ */
+@Component
+public class CoupleResolver {
+    
+    @Autowired
+    private CoupleMembershipIndex coupleMembershipIndex;
+    
+    public Optional<CoupleMembership> find(Long userId) {
+        CoupleMembership fromToken = fromCurrentPrincipal(userId);
+        if (fromToken != null) {
+            return Optional.of(fromToken);
+        }
+        return coupleMembershipIndex.find(userId);
+    }
+    
+    public CoupleMembership require(Long userId) {
+        return find(userId).orElseThrow(() -> new RuntimeException("User is not paired"));
+    }
+    
+    public boolean isPaired(Long userId) {
+        return find(userId).isPresent();
+    }
+    
+    /** Like {@link #isPaired} but never queries the database, so a false result is not conclusive. */
+    public boolean isKnownPaired(Long userId) {
+        return fromCurrentPrincipal(userId) != null || coupleMembershipIndex.findCached(userId).isPresent();
+    }
+    
+    private static CoupleMembership fromCurrentPrincipal(Long userId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal
+                && principal.getUserId().equals(userId)) {
+            return principal.getCouple();
+        }
+        return null;
+    }
+}
@@ -2,9 +2,7 @@ package com.datingapp.service;
 
 import com.datingapp.dto.CoupleStatusResponse;
 import com.datingapp.dto.TimerResponse;
-import com.datingapp.entity.Couple;
 import com.datingapp.entity.User;
-import com.datingapp.repository.CoupleRepository;
 import com.datingapp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,29 +14,27 @@ import java.time.LocalDateTime;
 public class CoupleService {
     
     @Autowired
-    private CoupleRepository coupleRepository;
+    private CoupleResolver coupleResolver;
     
     @Autowired
     private UserRepository userRepository;
     
     public CoupleStatusResponse getCoupleStatus(Long userId) {
-        Couple couple = coupleRepository.findByUserId(userId)
+        CoupleMembership couple = coupleResolver.find(userId)
                 .orElse(null);
         
         if (couple == null) {
             return new CoupleStatusResponse(false, null, null, null, null);
         }
         
-        Long partnerId = couple.getUser1Id().equals(userId) 
-                ? couple.getUser2Id() 
-                : couple.getUser1Id();
+        Long partnerId = couple.getPartnerId();
         
         User partner = userRepository.findById(partnerId)
                 .orElseThrow(() -> new RuntimeException("Partner not found"));
         
         return new CoupleStatusResponse(
                 true,
-                couple.getId(),
+                couple.getCoupleId(),
                 partnerId,
                 partner.getDisplayName(),
                 couple.getPairedAt()
@@ -46,8 +42,7 @@ public class CoupleService {
     }
     
     public TimerResponse getTimer(Long userId) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
         
         LocalDateTime pairedAt = couple.getPairedAt();
         Duration duration = Duration.between(pairedAt, LocalDateTime.now());
@@ -0,0 +1,49 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.DeviceToken;
+import com.datingapp.repository.DeviceTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Push registration tokens of each user's devices. Push notifications are sent
+ * to these tokens, so only the devices a user signed in on receive them.
+ */
+@Service
+public class DeviceService {
+    
+    @Autowired
+    private DeviceTokenRepository deviceTokenRepository;
+    
+    @Transactional
+    public void register(Long userId, String token) {
+        deviceTokenRepository.upsert(token, userId, LocalDateTime.now());
+    }
+    
+    @Transactional
+    public void unregister(Long userId, String token) {
+        deviceTokenRepository.deleteByTokenAndUserId(token, userId);
+    }
+    
+    /** Drops a token the push provider reported as no longer registered. */
+    @Transactional
+    public void removeStale(String token) {
+        deviceTokenRepository.deleteByToken(token);
+    }
+    
+    public Map<Long, List<String>> tokensFor(Collection<Long> userIds) {
+        Map<Long, List<String>> tokens = new HashMap<>();
+        for (DeviceToken device : deviceTokenRepository.findByUserIdIn(userIds)) {
+            tokens.computeIfAbsent(device.getUserId(), id -> new ArrayList<>()).add(device.getToken());
+        }
+        return tokens;
+    }
+}
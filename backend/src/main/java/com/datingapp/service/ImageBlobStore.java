@@ -0,0 +1,203 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.ImageBlob;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.ImageBlobRepository;
+import com.datingapp.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for slideshow uploads. Each distinct file is kept
+ * once in the {@link ImageStorage} under its SHA-256 and reference counted in
+ * {@code image_blobs}. Deletes only adjust the count; files are removed by
+ * {@link UploadCollector} once nothing references them.
+ *
+ * <p>Removing files and taking a new reference are ordered through the blob
+ * row, so this holds across instances: removal keeps the row locked, or
+ * holds a placeholder row, until the files are gone, and {@link #acquire}'s
+ * upsert waits for it.
+ *
+ * <p>A new row is committed with {@code stored = false} before its file is
+ * written. Whoever takes a reference while that is still so, on any
+ * instance, writes its own copy of the identical bytes instead of returning
+ * a name whose file may not exist yet, so a failed first write leaves no
+ * reference without a file.
+ */
+@Component
+public class ImageBlobStore implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobStore.class);
+    private static final int STRIPES = 64; // power of two
+    static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+    
+    // Records a new blob or adds a reference; committed on its own, so other instances see the reference at once
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO image_blobs (digest, filename, size_bytes, ref_count, stored, created_at) "
+            + "VALUES (?, ?, ?, 1, FALSE, ?) "
+            + "ON CONFLICT (digest) DO UPDATE SET ref_count = image_blobs.ref_count + 1, released_at = NULL "
+            + "RETURNING filename, stored";
+    
+    // Drops a reference, stamping the blob as released when it was the last one
+    private static final String RELEASE_SQL =
+            "UPDATE image_blobs SET ref_count = ref_count - 1, "
+            + "released_at = CASE WHEN ref_count <= 1 THEN ? ELSE released_at END "
+            + "WHERE digest = ? AND ref_count > 0";
+    
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+    
+    @Autowired
+    private ImageStorage imageStorage;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Within this instance, a duplicate upload waits until the first one's file is in place
+    private final Object[] locks = new Object[STRIPES];
+    
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder deduplicatedBytes = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    
+    public ImageBlobStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Takes a reference to the blob with this digest, moving the freshly
+     * written upload into place if it is new and discarding it otherwise.
+     *
+     * @return the stored filename, relative to the upload directory
+     */
+    public String acquire(Path upload, String digest, String extension) throws IOException {
+        long size = Files.size(upload);
+        synchronized (lockFor(digest)) {
+            // The first upload's name wins, whatever extension this one came with
+            Claim claim = jdbcTemplate.queryForObject(ACQUIRE_SQL,
+                    (rs, row) -> new Claim(rs.getString("filename"), rs.getBoolean("stored")),
+                    digest, digest + extension, size, Timestamp.valueOf(LocalDateTime.now()));
+            if (claim.stored()) {
+                Files.deleteIfExists(upload);
+                deduplicated.increment();
+                deduplicatedBytes.add(size);
+                return claim.filename();
+            }
+            
+            // New, or another upload of it has not finished writing: put this copy, the bytes are the same
+            try {
+                imageStorage.put(claim.filename(), upload);
+            } catch (IOException | RuntimeException e) {
+                jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now()), digest);
+                imageBlobRepository.deleteIfUnreferenced(digest);
+                throw e;
+            }
+            imageBlobRepository.markStored(digest);
+            stored.increment();
+            return claim.filename();
+        }
+    }
+    
+    /**
+     * Drops one reference to a stored file. Joins the caller's transaction.
+     * Nothing is unlinked here: a blob that loses its last reference is left
+     * as a tombstone for {@link UploadCollector}, and files from before
+     * content addressing, which have no blob row, become plain orphans.
+     */
+    public void release(String filename) {
+        jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now()), stem(filename));
+    }
+    
+    /**
+     * Removes a released blob's row and files, unless it was uploaded again
+     * in the meantime.
+     *
+     * @return bytes reclaimed
+     */
+    @Transactional
+    public long reclaim(ImageBlob blob) {
+        if (imageBlobRepository.lockUnreferenced(blob.getDigest()).isEmpty()) {
+            return 0;
+        }
+        String filename = blob.getFilename();
+        long bytes = delete(filename)
+                + delete(ImageVariantProcessor.variantName(filename, ImageVariantProcessor.THUMBNAIL_SUFFIX))
+                + delete(ImageVariantProcessor.variantName(filename, ImageVariantProcessor.DISPLAY_SUFFIX));
+        imageBlobRepository.deleteIfUnreferenced(blob.getDigest());
+        return bytes;
+    }
+    
+    /**
+     * Deletes a file the collector found unreferenced, unless the same content
+     * has a blob row by now. Released blobs are left to {@link #reclaim}.
+     *
+     * @return bytes reclaimed
+     */
+    @Transactional
+    public long deleteOrphan(String key, String digest) {
+        if (!DIGEST.matcher(digest).matches()) {
+            return delete(key); // named before content addressing, never written again
+        }
+        if (imageBlobRepository.insertPlaceholder(digest, key, LocalDateTime.now()) == 0) {
+            return 0;
+        }
+        long bytes = delete(key);
+        imageBlobRepository.deleteIfUnreferenced(digest);
+        return bytes;
+    }
+    
+    private long delete(String key) {
+        try {
+            long size = imageStorage.delete(key);
+            if (size > 0) {
+                removed.increment();
+            }
+            return size;
+        } catch (IOException e) {
+            // Still unreferenced, so the next collector run tries again
+            log.warn("Failed to delete image file {}: {}", key, e.getMessage());
+            return 0;
+        }
+    }
+    
+    private Object lockFor(String digest) {
+        return locks[digest.hashCode() & (STRIPES - 1)];
+    }
+    
+    private static String stem(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+    
+    private record Claim(String filename, boolean stored) {
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "imageBlobs";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        return Map.of(
+                "stored", stored.sum(),
+                "deduplicated", deduplicated.sum(),
+                "deduplicatedBytes", deduplicatedBytes.sum(),
+                "removed", removed.sum());
+    }
+}
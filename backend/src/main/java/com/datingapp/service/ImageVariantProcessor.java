@@ -0,0 +1,383 @@
+package com.datingapp.service;
+
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.SlideshowImageRepository;
+import com.datingapp.storage.ImageStorage;
+import com.datingapp.storage.StoredImage;
+import com.datingapp.util.Blurhash;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates downscaled JPEG variants of uploaded slideshow images on a
+ * bounded background pool: a thumbnail for lists and a screen-sized display
+ * copy for the slideshow itself, plus a blurhash placeholder. They are stored
+ * alongside the original and recorded on the image row once ready; until
+ * then, or for formats ImageIO cannot decode (HEIC, WebP), clients fall back
+ * to the original.
+ */
+@Component
+public class ImageVariantProcessor implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantProcessor.class);
+    public static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+    public static final String DISPLAY_SUFFIX = "_display.jpg";
+    
+    // 4x3 components encode to 28 characters; the hash is computed from a copy this small
+    private static final int BLURHASH_COMPONENTS_X = 4;
+    private static final int BLURHASH_COMPONENTS_Y = 3;
+    private static final int BLURHASH_SOURCE_SIZE = 32;
+    
+    @Autowired
+    private SlideshowImageRepository slideshowImageRepository;
+    
+    @Autowired
+    private ImageStorage imageStorage;
+    
+    @Value("${app.slideshow.staging-dir}")
+    private String stagingDir;
+    
+    @Value("${app.slideshow.variants.threads}")
+    private int threads;
+    
+    @Value("${app.slideshow.variants.queue-capacity}")
+    private int queueCapacity;
+    
+    @Value("${app.slideshow.variants.thumbnail-size}")
+    private int thumbnailSize;
+    
+    @Value("${app.slideshow.variants.display-size}")
+    private int displaySize;
+    
+    @Value("${app.slideshow.variants.jpeg-quality}")
+    private float jpegQuality;
+    
+    private ThreadPoolExecutor executor;
+    
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    
+    @PostConstruct
+    void start() {
+        // Originals are read from mapped or streamed storage, not files, so ImageIO should buffer in memory
+        ImageIO.setUseCache(false);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    /** Queues variant generation; never blocks, a full queue just leaves the image without variants. */
+    public void submit(Long imageId, String key) {
+        try {
+            executor.execute(() -> process(imageId, key));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Variant queue full, image {} is served without variants", imageId);
+        }
+    }
+    
+    public static String variantName(String originalFilename, String suffix) {
+        int dot = originalFilename.lastIndexOf('.');
+        return (dot > 0 ? originalFilename.substring(0, dot) : originalFilename) + suffix;
+    }
+    
+    private void process(Long imageId, String key) {
+        long started = System.nanoTime();
+        String thumbnailKey = variantName(key, THUMBNAIL_SUFFIX);
+        String displayKey = variantName(key, DISPLAY_SUFFIX);
+        try {
+            BufferedImage thumbnail;
+            // Identical uploads share their files, so the variants may already be there
+            if (!imageStorage.exists(thumbnailKey) || !imageStorage.exists(displayKey)) {
+                StoredImage original = imageStorage.get(key);
+                if (original == null) {
+                    skipped.increment();
+                    return;
+                }
+                BufferedImage display = decode(original, displaySize);
+                if (display == null) {
+                    skipped.increment();
+                    return;
+                }
+                display = orient(display, readExifOrientation(original));
+                display = scaleToFit(display, displaySize);
+                thumbnail = scaleToFit(display, thumbnailSize);
+                
+                writeJpeg(display, displayKey);
+                writeJpeg(thumbnail, thumbnailKey);
+            } else {
+                // Already oriented and small, so decoding it again is cheap
+                StoredImage existing = imageStorage.get(thumbnailKey);
+                thumbnail = existing == null ? null : decode(existing, BLURHASH_SOURCE_SIZE);
+            }
+            
+            String blurhash = thumbnail == null ? null : Blurhash.encode(
+                    scaleToFit(thumbnail, BLURHASH_SOURCE_SIZE), BLURHASH_COMPONENTS_X, BLURHASH_COMPONENTS_Y);
+            String thumbnailUrl = "/uploads/" + thumbnailKey;
+            String displayUrl = "/uploads/" + displayKey;
+            if (slideshowImageRepository.updateVariants(imageId, thumbnailUrl, displayUrl, blurhash) == 0) {
+                // Deleted while we were working; UploadCollector removes the variants if nothing else uses them
+                return;
+            }
+            processed.increment();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Could not generate variants for image {}: {}", imageId, e.getMessage());
+        } finally {
+            totalNanos.add(System.nanoTime() - started);
+        }
+    }
+    
+    // Decodes with subsampling so a 12 MP photo never has to be held at full size
+    private static BufferedImage decode(StoredImage original, int targetSize) throws IOException {
+        try (InputStream in = original.openStream();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestEdge / targetSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    private static BufferedImage scaleToFit(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        if (scale == 1.0 && source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        
+        // Drawn onto an RGB canvas, which also drops any alpha channel JPEG cannot hold
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, targetWidth, targetHeight);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+    
+    private void writeJpeg(BufferedImage image, String key) throws IOException {
+        // Unique so two images of the same content can be processed at once
+        Path staging = Paths.get(stagingDir);
+        Files.createDirectories(staging);
+        Path partial = staging.resolve(UUID.randomUUID() + ".part");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(partial.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        try {
+            imageStorage.put(key, partial);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+    }
+    
+    // ImageIO ignores EXIF orientation, so phone photos would otherwise come out sideways
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swapsAxes = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> {
+                transform.translate(width, 0);
+                transform.scale(-1, 1);
+            }
+            case 3 -> {
+                transform.translate(width, height);
+                transform.rotate(Math.PI);
+            }
+            case 4 -> {
+                transform.translate(0, height);
+                transform.scale(1, -1);
+            }
+            case 5 -> {
+                transform.rotate(-Math.PI / 2);
+                transform.scale(-1, 1);
+            }
+            case 6 -> {
+                transform.translate(height, 0);
+                transform.rotate(Math.PI / 2);
+            }
+            case 7 -> {
+                transform.translate(height, width);
+                transform.rotate(Math.PI / 2);
+                transform.scale(-1, 1);
+            }
+            default -> {
+                transform.translate(0, width);
+                transform.rotate(-Math.PI / 2);
+            }
+        }
+        BufferedImage target = new BufferedImage(swapsAxes ? height : width, swapsAxes ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+    
+    /** Reads the orientation tag from a JPEG's EXIF segment, or 1 if there is none. */
+    private static int readExifOrientation(StoredImage original) {
+        byte[] header = new byte[64 * 1024];
+        int length;
+        try (InputStream in = original.openStream()) {
+            length = in.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            return 1;
+        }
+        if (length < 4 || (header[0] & 0xFF) != 0xFF || (header[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        
+        int offset = 2;
+        while (offset + 4 <= length && (header[offset] & 0xFF) == 0xFF) {
+            int marker = header[offset + 1] & 0xFF;
+            int segmentLength = ((header[offset + 2] & 0xFF) << 8) | (header[offset + 3] & 0xFF);
+            if (marker == 0xE1 && offset + 10 <= length && header[offset + 4] == 'E' && header[offset + 5] == 'x'
+                    && header[offset + 6] == 'i' && header[offset + 7] == 'f') {
+                return readTiffOrientation(header, offset + 10, Math.min(length, offset + 2 + segmentLength));
+            }
+            if (marker == 0xDA) {
+                break; // image data starts, no EXIF before it
+            }
+            offset += 2 + segmentLength;
+        }
+        return 1;
+    }
+    
+    private static int readTiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                return readShort(data, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+    
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+    
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "imageVariants";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        long done = processed.sum() + skipped.sum() + failed.sum();
+        return Map.of(
+                "queueDepth", executor.getQueue().size(),
+                "activeWorkers", executor.getActiveCount(),
+                "processed", processed.sum(),
+                "skipped", skipped.sum(),
+                "failed", failed.sum(),
+                "rejected", rejected.sum(),
+                "avgLatencyMs", done == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / done);
+    }
+}
@@ -0,0 +1,121 @@
+package com.datingapp.service;
+
+import com.datingapp.dto.MessageHistoryResponse;
+import com.datingapp.dto.SentMessageResponse;
+import com.datingapp.entity.SentMessage;
+import com.datingapp.repository.SentMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Log of messages partners have sent each other, read with keyset pagination
+ * on (createdAt, id) so every page costs the same however long the history is.
+ */
+@Service
+public class MessageHistoryService {
+    
+    @Autowired
+    private SentMessageRepository sentMessageRepository;
+    
+    @Autowired
+    private CoupleResolver coupleResolver;
+    
+    @Value("${app.message-history.max-page-size:100}")
+    private int maxPageSize;
+    
+    public void record(Long coupleId, Long senderUserId, String content) {
+        SentMessage message = new SentMessage();
+        message.setCoupleId(coupleId);
+        message.setSenderUserId(senderUserId);
+        message.setContent(content);
+        message.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        sentMessageRepository.save(message);
+    }
+    
+    /**
+     * Returns the newest messages, or those older than {@code before}, newest first.
+     * With {@code since}, returns the messages sent after that cursor, oldest first.
+     */
+    public MessageHistoryResponse getHistory(Long userId, String before, String since, int limit) {
+        if (before != null && since != null) {
+            throw new RuntimeException("Use either before or since, not both");
+        }
+        Long coupleId = coupleResolver.require(userId).getCoupleId();
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        
+        // One extra row tells whether another page exists without a count query
+        List<SentMessage> rows;
+        if (since != null) {
+            Cursor cursor = Cursor.decode(since);
+            rows = sentMessageRepository.findAfter(coupleId, cursor.createdAt(), cursor.id(), pageSize + 1);
+        } else if (before != null) {
+            Cursor cursor = Cursor.decode(before);
+            rows = sentMessageRepository.findBefore(coupleId, cursor.createdAt(), cursor.id(), pageSize + 1);
+        } else {
+            rows = sentMessageRepository.findLatest(coupleId, pageSize + 1);
+        }
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<SentMessage> page = hasMore ? rows.subList(0, pageSize) : rows;
+        
+        String olderCursor;
+        String newerCursor;
+        if (page.isEmpty()) {
+            olderCursor = before;
+            newerCursor = since;
+        } else {
+            SentMessage first = page.get(0);
+            SentMessage last = page.get(page.size() - 1);
+            boolean ascending = since != null;
+            olderCursor = Cursor.of(ascending ? first : last).encode();
+            newerCursor = Cursor.of(ascending ? last : first).encode();
+        }
+        
+        List<SentMessageResponse> messages = page.stream()
+                .map(message -> new SentMessageResponse(
+                        message.getId(),
+                        message.getContent(),
+                        message.getSenderUserId(),
+                        message.getCreatedAt()
+                ))
+                .collect(Collectors.toList());
+        return new MessageHistoryResponse(messages, olderCursor, newerCursor, hasMore);
+    }
+    
+    private record Cursor(LocalDateTime createdAt, long id) {
+        
+        static Cursor of(SentMessage message) {
+            return new Cursor(message.getCreatedAt(), message.getId());
+        }
+        
+        // Opaque to clients: base64url of "<epoch micros>:<id>"
+        String encode() {
+            long micros = createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + createdAt.getNano() / 1_000;
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((micros + ":" + id).getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static Cursor decode(String value) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                long micros = Long.parseLong(decoded.substring(0, separator));
+                long id = Long.parseLong(decoded.substring(separator + 1));
+                LocalDateTime createdAt = LocalDateTime.ofEpochSecond(
+                        Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+                return new Cursor(createdAt, id);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+    }
+}
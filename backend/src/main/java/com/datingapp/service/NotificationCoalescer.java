@@ -0,0 +1,166 @@
+package com.datingapp.service;
+
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.util.LongLongHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges bursts of notifications to the same recipient. The first notification
+ * goes out immediately and opens a window; anything arriving before the window
+ * ends is held and delivered as one notification with a count ("❤️ ×7") when
+ * it closes, which opens the next window. A window that closes with nothing
+ * held is evicted. Recipients are spread over lock stripes so concurrent
+ * couples rarely contend.
+ */
+@Component
+public class NotificationCoalescer implements MetricsSource {
+    private static final int STRIPES = 64; // power of two
+    private static final int MAX_DISTINCT_MESSAGES = 4; // per window, further ones only add to the count
+    
+    @Value("${app.notifications.coalesce.window-ms}")
+    private long windowMs;
+    
+    private long windowNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    
+    private final LongAdder immediate = new LongAdder();
+    private final LongAdder absorbed = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    
+    @PostConstruct
+    void init() {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    /**
+     * Records a notification and returns it if it should be delivered now, or
+     * null if it was folded into the recipient's open window.
+     */
+    public CoalescedNotification submit(Long recipientId, Long senderId, String message) {
+        if (windowNanos <= 0) {
+            immediate.increment();
+            return new CoalescedNotification(recipientId, senderId, message, 1);
+        }
+        
+        long now = System.nanoTime();
+        Stripe stripe = stripeFor(recipientId);
+        synchronized (stripe) {
+            Window window = stripe.windows.get(recipientId);
+            if (window == null || (window.endsAt - now <= 0 && window.pendingCount == 0)) {
+                stripe.windows.put(recipientId, new Window(senderId, now + windowNanos));
+                immediate.increment();
+                return new CoalescedNotification(recipientId, senderId, message, 1);
+            }
+            window.hold(message);
+        }
+        absorbed.increment();
+        return null;
+    }
+    
+    /** Closes every window that has ended and returns the merged notifications to deliver. */
+    public List<CoalescedNotification> drainDue() {
+        List<CoalescedNotification> due = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<Long, Window>> iterator = stripe.windows.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Window> entry = iterator.next();
+                    Window window = entry.getValue();
+                    if (window.endsAt - now > 0) {
+                        continue;
+                    }
+                    if (window.pendingCount == 0) {
+                        iterator.remove();
+                    } else {
+                        due.add(window.release(entry.getKey(), now + windowNanos));
+                    }
+                }
+            }
+        }
+        flushed.add(due.size());
+        return due;
+    }
+    
+    private Stripe stripeFor(Long recipientId) {
+        return stripes[LongLongHashMap.mix(recipientId) & (STRIPES - 1)];
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "notificationCoalescing";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        int openWindows = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                openWindows += stripe.windows.size();
+            }
+        }
+        return Map.of(
+                "openWindows", openWindows,
+                "immediate", immediate.sum(),
+                "absorbed", absorbed.sum(),
+                "flushed", flushed.sum());
+    }
+    
+    private static final class Stripe {
+        final Map<Long, Window> windows = new HashMap<>();
+    }
+    
+    private static final class Window {
+        final Long senderId;
+        long endsAt;
+        int pendingCount;
+        Map<String, Integer> pending; // message -> repeats, in arrival order
+        
+        Window(Long senderId, long endsAt) {
+            this.senderId = senderId;
+            this.endsAt = endsAt;
+        }
+        
+        void hold(String message) {
+            if (pending == null) {
+                pending = new LinkedHashMap<>();
+            }
+            if (pending.containsKey(message) || pending.size() < MAX_DISTINCT_MESSAGES) {
+                pending.merge(message, 1, Integer::sum);
+            }
+            pendingCount++;
+        }
+        
+        CoalescedNotification release(Long recipientId, long nextEndsAt) {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(entry.getKey());
+                if (entry.getValue() > 1) {
+                    text.append(" ×").append(entry.getValue());
+                }
+            }
+            CoalescedNotification merged = new CoalescedNotification(recipientId, senderId, text.toString(), pendingCount);
+            pending = null;
+            pendingCount = 0;
+            endsAt = nextEndsAt;
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.NotificationDeadLetter;
+import com.datingapp.exception.ServiceBusyException;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.push.PushMessage;
+import com.datingapp.push.PushOutcome;
+import com.datingapp.push.PushProvider;
+import com.datingapp.repository.NotificationDeadLetterRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands push notifications to the active {@link PushProvider} off the request
+ * thread. Requests only enqueue; a fixed set of workers drains the bounded
+ * queue in batches. Transient failures are retried with jittered exponential
+ * backoff, and messages that run out of attempts or are refused by the
+ * provider are written to {@code notification_dead_letters}.
+ */
+@Component
+public class NotificationDispatcher implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final long POLL_TIMEOUT_MS = 500;
+    
+    @Autowired
+    private PushProvider pushProvider;
+    
+    @Autowired
+    private NotificationDeadLetterRepository deadLetterRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.notifications.dispatch.queue-capacity}")
+    private int queueCapacity;
+    
+    @Value("${app.notifications.dispatch.workers}")
+    private int workers;
+    
+    @Value("${app.notifications.dispatch.batch-size}")
+    private int batchSize;
+    
+    @Value("${app.notifications.dispatch.max-attempts}")
+    private int maxAttempts;
+    
+    @Value("${app.notifications.dispatch.initial-backoff-ms}")
+    private long initialBackoffMs;
+    
+    @Value("${app.notifications.dispatch.max-backoff-ms}")
+    private long maxBackoffMs;
+    
+    @Value("${app.notifications.dispatch.retry-after-seconds}")
+    private long retryAfterSeconds;
+    
+    private BlockingQueue<Delivery> queue;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running = true;
+    
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedMessages = new LongAdder();
+    
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "notification-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Workers finish what is already queued; pending retries are dropped
+        running = false;
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Shutting down with {} notifications undelivered", queue.size());
+        }
+    }
+    
+    public void enqueue(PushMessage message) {
+        if (!queue.offer(new Delivery(message, 0))) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many notifications in flight, please retry", retryAfterSeconds);
+        }
+        enqueued.increment();
+    }
+    
+    private void work() {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Delivery first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification worker failed on a batch of {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void dispatch(List<Delivery> batch) {
+        List<PushMessage> messages = new ArrayList<>(batch.size());
+        for (Delivery delivery : batch) {
+            messages.add(delivery.message());
+        }
+        
+        List<PushOutcome> outcomes;
+        try {
+            outcomes = pushProvider.send(messages);
+        } catch (RuntimeException e) {
+            log.warn("Push provider {} failed a batch of {}", pushProvider.getName(), batch.size(), e);
+            outcomes = Collections.nCopies(batch.size(), PushOutcome.RETRY);
+        }
+        batches.increment();
+        batchedMessages.add(batch.size());
+        
+        for (int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            switch (outcomes.get(i)) {
+                case DELIVERED -> delivered.increment();
+                case RETRY -> retry(delivery);
+                case REJECTED -> deadLetter(delivery.attempt(), PushOutcome.REJECTED.name());
+            }
+        }
+    }
+    
+    private void retry(Delivery delivery) {
+        Delivery next = delivery.attempt();
+        if (next.attempts() >= maxAttempts || !running) {
+            deadLetter(next, PushOutcome.RETRY.name());
+            return;
+        }
+        
+        // Jitter keeps a provider outage from turning into synchronized retry waves
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << (next.attempts() - 1));
+        long delay = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+        retried.increment();
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(next)) {
+                deadLetter(next, "QUEUE_FULL");
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private void deadLetter(Delivery delivery, String reason) {
+        deadLettered.increment();
+        PushMessage message = delivery.message();
+        try {
+            NotificationDeadLetter deadLetter = new NotificationDeadLetter();
+            deadLetter.setRecipientUserId(message.getRecipientId());
+            deadLetter.setTitle(message.getTitle());
+            deadLetter.setBody(message.getBody());
+            deadLetter.setData(message.getData() != null ? objectMapper.writeValueAsString(message.getData()) : null);
+            deadLetter.setProvider(pushProvider.getName());
+            deadLetter.setAttempts(delivery.attempts());
+            deadLetter.setReason(reason);
+            deadLetterRepository.save(deadLetter);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Could not dead-letter notification for user {}", message.getRecipientId(), e);
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "notificationDispatch";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        long batchCount = batches.sum();
+        return Map.of(
+                "queueDepth", queue.size(),
+                "enqueued", enqueued.sum(),
+                "rejected", rejected.sum(),
+                "delivered", delivered.sum(),
+                "retried", retried.sum(),
+                "deadLettered", deadLettered.sum(),
+                "batches", batchCount,
+                "avgBatchSize", batchCount == 0 ? 0.0 : (double) batchedMessages.sum() / batchCount);
+    }
+    
+    private record Delivery(PushMessage message, int attempts) {
+        Delivery attempt() {
+            return new Delivery(message, attempts + 1);
+        }
+    }
+}
@@ -1,35 +1,77 @@
 package com.datingapp.service;
 
 import com.datingapp.dto.NotificationRequest;
-import com.datingapp.entity.Couple;
-import com.datingapp.entity.User;
-import com.datingapp.repository.CoupleRepository;
-import com.datingapp.repository.UserRepository;
+import com.datingapp.dto.PartnerNotification;
+import com.datingapp.event.PartnerEvent;
+import com.datingapp.exception.ServiceBusyException;
+import com.datingapp.push.PushMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @Service
 public class NotificationService {
+    private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+    
+    @Autowired
+    private CoupleResolver coupleResolver;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
     
     @Autowired
-    private CoupleRepository coupleRepository;
+    private NotificationCoalescer notificationCoalescer;
     
     @Autowired
-    private UserRepository userRepository;
+    private MessageHistoryService messageHistoryService;
     
     public void sendQuickNotification(Long userId, NotificationRequest request) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
+        Long partnerId = couple.getPartnerId();
         
-        Long partnerId = couple.getUser1Id().equals(userId) 
-                ? couple.getUser2Id() 
-                : couple.getUser1Id();
+        // Rapid taps are held and merged into one delivery when the recipient's window closes
+        CoalescedNotification notification = notificationCoalescer.submit(partnerId, userId, request.getMessage());
+        if (notification != null) {
+            deliver(notification);
+        }
         
-        // In a real implementation, this would send a push notification
-        // For now, we'll just log it. The mobile app will poll or use WebSockets
-        System.out.println("Notification to user " + partnerId + ": " + request.getMessage());
+        // Recorded once the message is accepted, so the retry after a full queue does not record it twice
+        messageHistoryService.record(couple.getCoupleId(), userId, request.getMessage());
+    }
+    
+    @Scheduled(fixedRateString = "${app.notifications.coalesce.flush-interval-ms}")
+    public void flushCoalesced() {
+        for (CoalescedNotification notification : notificationCoalescer.drainDue()) {
+            try {
+                deliver(notification);
+            } catch (ServiceBusyException e) {
+                log.warn("Dropping merged notification for user {}: {}", notification.getRecipientId(), e.getMessage());
+            }
+        }
+    }
+    
+    private void deliver(CoalescedNotification notification) {
+        Long partnerId = notification.getRecipientId();
+        
+        // As a push notification for devices in the background, sent off the request thread.
+        // Enqueued first: a full queue rejects the request, and the client's retry must not repeat the event below.
+        notificationDispatcher.enqueue(new PushMessage(partnerId, null, notification.getMessage(),
+                Map.of("type", PartnerEvent.NOTIFICATION,
+                        "fromUserId", notification.getSenderId().toString(),
+                        "count", Integer.toString(notification.getCount()))));
         
-        // TODO: Integrate with FCM (Firebase Cloud Messaging) or similar push notification service
+        // And to the partner's open devices over the event stream
+        PartnerNotification event = new PartnerNotification(notification.getMessage(), notification.getSenderId(),
+                LocalDateTime.now(), notification.getCount());
+        eventPublisher.publishEvent(new PartnerEvent(partnerId, PartnerEvent.NOTIFICATION, event));
     }
 }
-
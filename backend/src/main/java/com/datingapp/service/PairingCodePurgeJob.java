@@ -0,0 +1,113 @@
+package com.datingapp.service;
+
+import com.datingapp.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes finished rows from {@code pairing_codes} in small batches.
+ *
+ * <p>A code is finished once it has expired; used codes expire at most
+ * {@code code-expiration-minutes} after creation, so one range predicate on
+ * {@code expires_at} covers both used and expired rows and is served by
+ * {@code idx_expires}. Each batch is its own short statement, and
+ * {@code FOR UPDATE SKIP LOCKED} lets several instances run the job at once
+ * without waiting on each other.
+ */
+@Component
+public class PairingCodePurgeJob implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(PairingCodePurgeJob.class);
+    
+    private static final String PURGE_SQL =
+            "DELETE FROM pairing_codes WHERE id IN ("
+            + "SELECT id FROM pairing_codes WHERE expires_at < ? LIMIT ? FOR UPDATE SKIP LOCKED)";
+    private static final String BACKLOG_SQL =
+            "SELECT count(*) FROM pairing_codes WHERE expires_at < ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.pairing.purge.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${app.pairing.purge.pause-ms:200}")
+    private long pauseMs;
+    
+    @Value("${app.pairing.purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+    
+    @Value("${app.pairing.purge.retention-minutes:60}")
+    private long retentionMinutes;
+    
+    private final AtomicLong rowsPurged = new AtomicLong();
+    private final AtomicLong lastBatchLatencyMs = new AtomicLong();
+    private final AtomicLong maxBatchLatencyMs = new AtomicLong();
+    private final AtomicLong backlog = new AtomicLong();
+    
+    @Scheduled(fixedDelayString = "${app.pairing.purge.interval-ms:600000}",
+            initialDelayString = "${app.pairing.purge.initial-delay-ms:60000}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes));
+        long purgedThisRun = 0;
+        
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            long start = System.nanoTime();
+            int deleted = jdbcTemplate.update(PURGE_SQL, cutoff, batchSize);
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            
+            lastBatchLatencyMs.set(latencyMs);
+            maxBatchLatencyMs.accumulateAndGet(latencyMs, Math::max);
+            rowsPurged.addAndGet(deleted);
+            purgedThisRun += deleted;
+            
+            if (deleted < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        
+        Long remaining = jdbcTemplate.queryForObject(BACKLOG_SQL, Long.class, cutoff);
+        backlog.set(remaining != null ? remaining : 0L);
+        if (purgedThisRun > 0) {
+            log.info("Purged {} pairing codes, {} remaining", purgedThisRun, backlog.get());
+        }
+    }
+    
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "pairingCodePurge";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("rowsPurged", rowsPurged.get());
+        metrics.put("lastBatchLatencyMs", lastBatchLatencyMs.get());
+        metrics.put("maxBatchLatencyMs", maxBatchLatencyMs.get());
+        metrics.put("backlog", backlog.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,220 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.PairingCode;
+import com.datingapp.event.CouplePairedEvent;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.PairingCodeRepository;
+import com.datingapp.util.LongLongHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Active pairing codes issued by this instance. Uniqueness across instances is
+ * enforced by the partial unique index on unused {@code pairing_codes.code};
+ * this registry picks candidates that are free locally and tracks expiry.
+ *
+ * <ul>
+ *   <li>A {@link BitSet} over the whole 000000-999999 space marks codes in use,
+ *       so a free code is found with one {@code nextClearBit} from a random
+ *       start instead of a query per candidate.</li>
+ *   <li>Each owner has at most one slot, so generating a new code invalidates
+ *       the previous one without scanning anything.</li>
+ *   <li>Expiry is driven by a hashed timing wheel with one-second ticks; each
+ *       tick only visits the codes that were scheduled into its bucket.</li>
+ * </ul>
+ *
+ * All state lives in primitive maps and arrays guarded by a single monitor;
+ * pairing traffic is low enough that contention is not a concern.
+ */
+@Component
+public class PairingCodeRegistry implements MetricsSource {
+    public static final int CODE_SPACE = 1_000_000;
+    private static final int WHEEL_SIZE = 512; // ticks (seconds); wider than the code lifetime
+    
+    @Autowired
+    private PairingCodeRepository pairingCodeRepository;
+    
+    private final Random random = new SecureRandom();
+    private final BitSet allocated = new BitSet(CODE_SPACE);
+    
+    // Keys are code + 1 because 0 is the empty marker
+    private final LongLongHashMap ownerByCode = new LongLongHashMap();
+    private final LongLongHashMap deadlineByCode = new LongLongHashMap();
+    private final LongLongHashMap codeByOwner = new LongLongHashMap();
+    
+    private final int[][] wheel = new int[WHEEL_SIZE][];
+    private final int[] wheelSizes = new int[WHEEL_SIZE];
+    private long currentTick = epochSecond();
+    
+    private long allocations;
+    private long expirations;
+    
+    /**
+     * Allocates a free code for {@code ownerId}, releasing the owner's previous code.
+     *
+     * @param deadline epoch second after which the code is no longer valid
+     * @return the allocated code number, to be formatted as six digits
+     */
+    public synchronized int allocate(long ownerId, long deadline) {
+        release(ownerId);
+        if (ownerByCode.size() >= CODE_SPACE) {
+            throw new RuntimeException("No pairing codes available, please retry");
+        }
+        
+        int code = allocated.nextClearBit(random.nextInt(CODE_SPACE));
+        if (code >= CODE_SPACE) {
+            code = allocated.nextClearBit(0);
+        }
+        register(code, ownerId, deadline);
+        allocations++;
+        return code;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreActiveCodes() {
+        for (PairingCode code : pairingCodeRepository.findByUsedFalseAndExpiresAtAfter(LocalDateTime.now())) {
+            restore(Integer.parseInt(code.getCode()), code.getOwnerUserId(),
+                    code.getExpiresAt().atZone(ZoneId.systemDefault()).toEpochSecond());
+        }
+    }
+    
+    private synchronized void restore(int code, long ownerId, long deadline) {
+        if (deadline > epochSecond() && !allocated.get(code)) {
+            release(ownerId);
+            register(code, ownerId, deadline);
+        }
+    }
+    
+    /** Returns the owner of an active code, or 0 if the code is not active here. */
+    public synchronized long ownerOf(int code) {
+        long deadline = deadlineByCode.get(code + 1L, 0L);
+        if (deadline == 0L || deadline <= epochSecond()) {
+            return 0L;
+        }
+        return ownerByCode.get(code + 1L, 0L);
+    }
+    
+    /** Returns the deadline of the owner's active code, or 0 if they have none. */
+    public synchronized long deadlineOf(long ownerId) {
+        long code = codeByOwner.get(ownerId, 0L);
+        if (code == 0L) {
+            return 0L;
+        }
+        long deadline = deadlineByCode.get(code, 0L);
+        return deadline > epochSecond() ? deadline : 0L;
+    }
+    
+    /**
+     * Drops the codes of both partners once their pairing has committed: the
+     * owner's code was consumed and the claimant no longer needs theirs.
+     */
+    @TransactionalEventListener
+    public synchronized void onCouplePaired(CouplePairedEvent event) {
+        release(event.getUser1Id());
+        release(event.getUser2Id());
+    }
+    
+    /** Drops a code that turned out to be held by another instance. */
+    public synchronized void discard(int code, long ownerId) {
+        if (ownerByCode.get(code + 1L, 0L) == ownerId) {
+            remove(code, ownerId);
+        }
+    }
+    
+    @Scheduled(fixedRate = 1000)
+    public synchronized void advance() {
+        long now = epochSecond();
+        // Each bucket holds every deadline congruent to it, so one lap covers all of them
+        long from = Math.max(currentTick + 1, now - WHEEL_SIZE + 1);
+        for (long tick = from; tick <= now; tick++) {
+            expireBucket((int) (tick & (WHEEL_SIZE - 1)), now);
+        }
+        currentTick = now;
+    }
+    
+    private void expireBucket(int bucket, long now) {
+        int[] codes = wheel[bucket];
+        int kept = 0;
+        for (int i = 0; i < wheelSizes[bucket]; i++) {
+            int code = codes[i];
+            long deadline = deadlineByCode.get(code + 1L, 0L);
+            if (deadline == 0L || (deadline & (WHEEL_SIZE - 1)) != bucket) {
+                continue; // released or re-allocated into another bucket
+            }
+            if (deadline <= now) {
+                remove(code, ownerByCode.get(code + 1L, 0L));
+                expirations++;
+            } else {
+                codes[kept++] = code;
+            }
+        }
+        wheelSizes[bucket] = kept;
+    }
+    
+    private void register(int code, long ownerId, long deadline) {
+        allocated.set(code);
+        ownerByCode.put(code + 1L, ownerId);
+        deadlineByCode.put(code + 1L, deadline);
+        codeByOwner.put(ownerId, code + 1L);
+        schedule(code, deadline);
+    }
+    
+    private void schedule(int code, long deadline) {
+        int bucket = (int) (deadline & (WHEEL_SIZE - 1));
+        int[] codes = wheel[bucket];
+        if (codes == null) {
+            codes = wheel[bucket] = new int[8];
+        } else if (wheelSizes[bucket] == codes.length) {
+            codes = wheel[bucket] = Arrays.copyOf(codes, codes.length << 1);
+        }
+        codes[wheelSizes[bucket]++] = code;
+    }
+    
+    private void release(long ownerId) {
+        long previous = codeByOwner.get(ownerId, 0L);
+        if (previous != 0L) {
+            remove((int) (previous - 1), ownerId);
+        }
+    }
+    
+    // The wheel entry is left behind and skipped when its bucket comes round
+    private void remove(int code, long ownerId) {
+        allocated.clear(code);
+        ownerByCode.remove(code + 1L);
+        deadlineByCode.remove(code + 1L);
+        if (codeByOwner.get(ownerId, 0L) == code + 1L) {
+            codeByOwner.remove(ownerId);
+        }
+    }
+    
+    private static long epochSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "pairingCodes";
+    }
+    
+    @Override
+    public synchronized Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("active", ownerByCode.size());
+        metrics.put("allocations", allocations);
+        metrics.put("expirations", expirations);
+        return metrics;
+    }
+}
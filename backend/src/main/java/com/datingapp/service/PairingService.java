@@ -1,104 +1,150 @@
 package com.datingapp.service;
 
+import com.datingapp.dto.AuthResponse;
 import com.datingapp.dto.ConfirmPairingRequest;
 import com.datingapp.dto.PairingCodeResponse;
-import com.datingapp.entity.Couple;
-import com.datingapp.entity.PairingCode;
 import com.datingapp.entity.User;
-import com.datingapp.repository.CoupleRepository;
+import com.datingapp.event.CouplePairedEvent;
 import com.datingapp.repository.PairingCodeRepository;
 import com.datingapp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.Random;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 
 @Service
 public class PairingService {
+    // Each attempt picks a random code free on this instance; a clash means another instance holds it
+    private static final int MAX_ALLOCATION_ATTEMPTS = 8;
+    
+    // Takes the code only if no row holds it unused; uq_pairing_code_unused makes this safe across instances
+    private static final String INSERT_IF_UNUSED_SQL =
+            "INSERT INTO pairing_codes (code, owner_user_id, expires_at, used, created_at) "
+            + "VALUES (?, ?, ?, false, ?) ON CONFLICT (code) WHERE used = false DO NOTHING";
+    
+    // Claims the newest live row for the code in one statement. A concurrent claimer waits for the row
+    // lock: if the holder commits the row no longer matches, and if it rolls back the waiter claims it
+    private static final String CLAIM_SQL =
+            "UPDATE pairing_codes SET used = true WHERE id = (SELECT id FROM pairing_codes "
+            + "WHERE code = ? AND used = false AND expires_at > ? "
+            + "ORDER BY created_at DESC LIMIT 1 FOR UPDATE) RETURNING owner_user_id";
+    
+    // Inserts only if neither user is in a couple yet; concurrent inserts are caught by the unique constraints
+    private static final String INSERT_COUPLE_SQL =
+            "INSERT INTO couples (user1_id, user2_id, paired_at) SELECT ?, ?, ? WHERE NOT EXISTS "
+            + "(SELECT 1 FROM couples WHERE user1_id IN (?, ?) OR user2_id IN (?, ?)) RETURNING id";
     
     @Autowired
     private PairingCodeRepository pairingCodeRepository;
     
     @Autowired
-    private CoupleRepository coupleRepository;
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CoupleResolver coupleResolver;
     
     @Autowired
-    private UserRepository userRepository;
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private PairingCodeRegistry pairingCodeRegistry;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     
     @Value("${app.pairing.code-expiration-minutes}")
     private int codeExpirationMinutes;
     
-    private final Random random = new Random();
-    
     @Transactional
     public PairingCodeResponse generatePairingCode(Long userId) {
         // Check if user is already paired
-        if (coupleRepository.findByUserId(userId).isPresent()) {
+        if (coupleResolver.isPaired(userId)) {
             throw new RuntimeException("User is already paired");
         }
         
-        // Invalidate any existing codes for this user
-        pairingCodeRepository.findAll().stream()
-                .filter(code -> code.getOwnerUserId().equals(userId) && !code.getUsed())
-                .forEach(code -> {
-                    code.setUsed(true);
-                    pairingCodeRepository.save(code);
-                });
-        
-        // Generate new 6-digit code
-        String code = String.format("%06d", random.nextInt(1000000));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(codeExpirationMinutes);
+        pairingCodeRepository.invalidateOwner(userId);
         
-        // Ensure uniqueness
-        while (pairingCodeRepository.findByCodeAndUsedFalseAndExpiresAtAfter(
-                code, LocalDateTime.now()).isPresent()) {
-            code = String.format("%06d", random.nextInt(1000000));
+        for (int attempt = 0; attempt < MAX_ALLOCATION_ATTEMPTS; attempt++) {
+            // Allocating a code also invalidates the user's previous one
+            int codeNumber = pairingCodeRegistry.allocate(userId, toEpochSecond(expiresAt));
+            String code = String.format("%06d", codeNumber);
+            
+            pairingCodeRepository.retireExpired(code, now);
+            if (jdbcTemplate.update(INSERT_IF_UNUSED_SQL, code, userId, Timestamp.valueOf(expiresAt),
+                    Timestamp.valueOf(now)) == 1) {
+                return new PairingCodeResponse(code, (long) (codeExpirationMinutes * 60));
+            }
+            pairingCodeRegistry.discard(codeNumber, userId);
         }
-        
-        PairingCode pairingCode = new PairingCode();
-        pairingCode.setCode(code);
-        pairingCode.setOwnerUserId(userId);
-        pairingCode.setExpiresAt(LocalDateTime.now().plusMinutes(codeExpirationMinutes));
-        pairingCode.setUsed(false);
-        
-        pairingCode = pairingCodeRepository.save(pairingCode);
-        
-        return new PairingCodeResponse(code, (long) (codeExpirationMinutes * 60));
+        throw new RuntimeException("No pairing codes available, please retry");
     }
     
+    /**
+     * Pairs the caller with the code owner and returns fresh tokens for the caller
+     * that already carry the new couple context. The owner picks up the context
+     * the next time their tokens are issued.
+     */
     @Transactional
-    public void confirmPairing(String code, Long userId) {
-        // Check if user is already paired
-        if (coupleRepository.findByUserId(userId).isPresent()) {
+    public AuthResponse confirmPairing(String code, Long userId) {
+        // Cheap in-memory rejection; the couple insert below is the authoritative check
+        if (coupleResolver.isKnownPaired(userId)) {
             throw new RuntimeException("User is already paired");
         }
         
-        // Find valid pairing code
-        PairingCode pairingCode = pairingCodeRepository
-                .findByCodeAndUsedFalseAndExpiresAtAfter(code, LocalDateTime.now())
-                .orElseThrow(() -> new RuntimeException("Invalid or expired pairing code"));
-        
-        // Cannot pair with yourself
-        if (pairingCode.getOwnerUserId().equals(userId)) {
+        // Cheap rejections when the code was issued here; the claim below is the authoritative check
+        long localOwnerId = pairingCodeRegistry.ownerOf(Integer.parseInt(code));
+        if (localOwnerId == userId) {
             throw new RuntimeException("Cannot pair with yourself");
         }
-        
-        // Check if owner is already paired
-        if (coupleRepository.findByUserId(pairingCode.getOwnerUserId()).isPresent()) {
+        if (localOwnerId != 0L && coupleResolver.isKnownPaired(localOwnerId)) {
             throw new RuntimeException("Code owner is already paired");
         }
         
-        // Mark code as used
-        pairingCode.setUsed(true);
-        pairingCodeRepository.save(pairingCode);
+        // Rolled back with everything else if the couple insert fails, so the code stays usable
+        long ownerUserId = jdbcTemplate.query(CLAIM_SQL, (rs, row) -> rs.getLong(1),
+                        code, Timestamp.valueOf(LocalDateTime.now()))
+                .stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Invalid or expired pairing code"));
+        if (ownerUserId == userId) {
+            throw new RuntimeException("Cannot pair with yourself");
+        }
+        pairingCodeRepository.invalidateOwner(userId);
         
         // Create couple
-        Couple couple = new Couple();
-        couple.setUser1Id(pairingCode.getOwnerUserId());
-        couple.setUser2Id(userId);
-        coupleRepository.save(couple);
+        LocalDateTime pairedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS); // column precision
+        Long coupleId;
+        try {
+            coupleId = jdbcTemplate.query(INSERT_COUPLE_SQL, (rs, row) -> rs.getLong(1),
+                            ownerUserId, userId, Timestamp.valueOf(pairedAt),
+                            ownerUserId, userId, ownerUserId, userId)
+                    .stream().findFirst()
+                    .orElseThrow(() -> new RuntimeException("User or code owner is already paired"));
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("User or code owner is already paired");
+        }
+        
+        eventPublisher.publishEvent(new CouplePairedEvent(coupleId, ownerUserId, userId, pairedAt));
+        
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return authService.issueTokens(user, new CoupleMembership(coupleId, userId, ownerUserId, pairedAt));
+    }
+    
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
     }
 }
 
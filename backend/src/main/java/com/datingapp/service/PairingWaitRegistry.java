@@ -0,0 +1,128 @@
+package com.datingapp.service;
+
+import com.datingapp.dto.CoupleStatusResponse;
+import com.datingapp.entity.Couple;
+import com.datingapp.event.CouplePairedEvent;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.CoupleRepository;
+import com.datingapp.repository.PairingCodeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parks "wait for partner" requests from code owners until the code is
+ * confirmed or expires. Requests are held as {@link DeferredResult}s, so a
+ * waiting owner occupies neither a request thread nor a database connection.
+ *
+ * <p>Pairings committed on this instance complete their waiters at once.
+ * Codes can also be claimed through another instance, so parked owners are
+ * checked against the database every {@code app.pairing.wait-poll-ms}, and a
+ * wait that times out reports the couple status as it is then.
+ */
+@Component
+public class PairingWaitRegistry implements MetricsSource {
+    
+    @Autowired
+    private PairingCodeRegistry pairingCodeRegistry;
+    
+    @Autowired
+    private CoupleResolver coupleResolver;
+    
+    @Autowired
+    private CoupleService coupleService;
+    
+    @Autowired
+    private PairingCodeRepository pairingCodeRepository;
+    
+    @Autowired
+    private CoupleRepository coupleRepository;
+    
+    private final Map<Long, Set<DeferredResult<CoupleStatusResponse>>> waiters = new ConcurrentHashMap<>();
+    
+    public DeferredResult<CoupleStatusResponse> await(Long userId) {
+        if (coupleResolver.isPaired(userId)) {
+            DeferredResult<CoupleStatusResponse> result = new DeferredResult<>();
+            result.setResult(coupleService.getCoupleStatus(userId));
+            return result;
+        }
+        
+        long deadline = pairingCodeRegistry.deadlineOf(userId);
+        if (deadline == 0L) {
+            // The code may have been generated through another instance
+            deadline = pairingCodeRepository
+                    .findFirstByOwnerUserIdAndUsedFalseAndExpiresAtAfterOrderByExpiresAtDesc(userId, LocalDateTime.now())
+                    .map(code -> code.getExpiresAt().atZone(ZoneId.systemDefault()).toEpochSecond())
+                    .orElseThrow(() -> new RuntimeException("No active pairing code"));
+        }
+        
+        // Once the code has expired the current status is returned, which is "not paired" unless a claim was missed
+        long timeoutMs = Math.max(1000L, deadline * 1000 - System.currentTimeMillis());
+        DeferredResult<CoupleStatusResponse> result = new DeferredResult<>(timeoutMs,
+                () -> coupleService.getCoupleStatus(userId));
+        
+        waiters.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(result);
+        result.onCompletion(() -> remove(userId, result));
+        
+        // Re-check so a pairing committed before the waiter was registered isn't missed
+        if (coupleResolver.isPaired(userId)) {
+            result.setResult(coupleService.getCoupleStatus(userId));
+        }
+        return result;
+    }
+    
+    @TransactionalEventListener
+    public void onCouplePaired(CouplePairedEvent event) {
+        complete(event.getUser1Id());
+        complete(event.getUser2Id());
+    }
+    
+    // Picks up codes claimed through other instances, whose pairing events are not seen here
+    @Scheduled(fixedDelayString = "${app.pairing.wait-poll-ms:2000}")
+    public void pollPairings() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<Couple> paired = coupleRepository.findByUserIdIn(List.copyOf(waiters.keySet()));
+        for (Couple couple : paired) {
+            complete(couple.getUser1Id());
+            complete(couple.getUser2Id());
+        }
+    }
+    
+    private void complete(Long userId) {
+        Set<DeferredResult<CoupleStatusResponse>> parked = waiters.remove(userId);
+        if (parked == null || parked.isEmpty()) {
+            return;
+        }
+        CoupleStatusResponse status = coupleService.getCoupleStatus(userId);
+        parked.forEach(result -> result.setResult(status));
+    }
+    
+    private void remove(Long userId, DeferredResult<CoupleStatusResponse> result) {
+        waiters.computeIfPresent(userId, (id, parked) -> {
+            parked.remove(result);
+            return parked.isEmpty() ? null : parked;
+        });
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "pairingWaiters";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        int waiting = waiters.values().stream().mapToInt(Set::size).sum();
+        return Map.of("owners", waiters.size(), "requests", waiting);
+    }
+}
@@ -0,0 +1,246 @@
+package com.datingapp.service;
+
+import com.datingapp.event.PartnerEvent;
+import com.datingapp.metrics.MetricsSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one server-sent event stream per connected device and pushes
+ * {@link PartnerEvent}s to them. Streams are async servlet responses, so an
+ * idle connection holds no thread. Each stream has a bounded outbound queue
+ * drained by a small sender pool; a device that falls a full queue behind is
+ * disconnected and expected to reconnect and refetch. So is one whose write
+ * has been blocked for longer than {@code app.realtime.send-timeout-ms}, so a
+ * few stuck sockets cannot hold every sender thread.
+ */
+@Component
+public class PartnerChannelRegistry implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(PartnerChannelRegistry.class);
+    private static final int DRAIN_BATCH = 32; // events per turn before yielding the sender thread
+    
+    @Value("${app.realtime.session-timeout-ms}")
+    private long sessionTimeoutMs;
+    
+    @Value("${app.realtime.queue-capacity}")
+    private int queueCapacity;
+    
+    @Value("${app.realtime.max-sessions-per-user}")
+    private int maxSessionsPerUser;
+    
+    @Value("${app.realtime.sender-threads}")
+    private int senderThreads;
+    
+    @Value("${app.realtime.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+    
+    private final Map<Long, Set<Session>> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private ExecutorService sender;
+    
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder undeliverable = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+    
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "partner-channel-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void stop() {
+        sessions.values().forEach(userSessions -> userSessions.forEach(Session::close));
+        sender.shutdown();
+    }
+    
+    public SseEmitter open(Long userId) {
+        Session session = new Session(userId, new SseEmitter(sessionTimeoutMs));
+        session.emitter.onCompletion(() -> unregister(session));
+        session.emitter.onTimeout(session::close);
+        session.emitter.onError(e -> unregister(session));
+        
+        Set<Session> userSessions = sessions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        userSessions.add(session);
+        openSessions.incrementAndGet();
+        if (userSessions.size() > maxSessionsPerUser) {
+            // Usually a device that reconnected before its old stream was noticed as dead
+            userSessions.stream().min(Comparator.comparingLong(s -> s.openedAt)).ifPresent(Session::close);
+        }
+        
+        // Sends the response headers right away so the client knows it is connected
+        session.enqueue(SseEmitter.event().name("ready").data(""));
+        return session.emitter;
+    }
+    
+    public void send(Long userId, String type, Object data) {
+        Set<Session> userSessions = sessions.get(userId);
+        if (userSessions == null || userSessions.isEmpty()) {
+            undeliverable.increment();
+            return;
+        }
+        for (Session session : userSessions) {
+            session.enqueue(SseEmitter.event().name(type).data(data));
+        }
+    }
+    
+    public boolean isConnected(Long userId) {
+        Set<Session> userSessions = sessions.get(userId);
+        return userSessions != null && !userSessions.isEmpty();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPartnerEvent(PartnerEvent event) {
+        send(event.getRecipientId(), event.getType(), event.getData());
+    }
+    
+    // Keeps proxies from closing idle streams and surfaces dead connections on the next write
+    @Scheduled(fixedRateString = "${app.realtime.heartbeat-interval-ms}")
+    public void heartbeat() {
+        for (Set<Session> userSessions : sessions.values()) {
+            for (Session session : userSessions) {
+                session.enqueue(SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.realtime.send-timeout-ms:5000}")
+    public void dropStalledSessions() {
+        long now = System.nanoTime();
+        for (Set<Session> userSessions : sessions.values()) {
+            for (Session session : userSessions) {
+                Thread thread = session.sendingThread;
+                if (thread != null && now - session.sendStartedAt > sendTimeoutMs * 1_000_000) {
+                    stalled.increment();
+                    log.debug("Disconnecting stalled partner channel for user {}", session.userId);
+                    // The emitter is locked by the blocked send, so it is completed by drain once the write gives up
+                    unregister(session);
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+    
+    private void unregister(Session session) {
+        if (session.closed.getAndSet(true)) {
+            return;
+        }
+        openSessions.decrementAndGet();
+        session.outbound.clear();
+        sessions.computeIfPresent(session.userId, (id, userSessions) -> {
+            userSessions.remove(session);
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "partnerChannel";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        return Map.of(
+                "openSessions", openSessions.get(),
+                "connectedUsers", sessions.size(),
+                "delivered", delivered.sum(),
+                "overflowDisconnects", overflowed.sum(),
+                "stalledDisconnects", stalled.sum(),
+                "undeliverable", undeliverable.sum());
+    }
+    
+    private final class Session {
+        final Long userId;
+        final SseEmitter emitter;
+        final long openedAt = System.nanoTime();
+        final BlockingQueue<SseEmitter.SseEventBuilder> outbound = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile Thread sendingThread;
+        volatile long sendStartedAt;
+        
+        Session(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+        
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!outbound.offer(event)) {
+                overflowed.increment();
+                log.debug("Disconnecting slow partner channel for user {}", userId);
+                close();
+                return;
+            }
+            schedule();
+        }
+        
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+        
+        void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                for (int sent = 0; sent < DRAIN_BATCH && (event = outbound.poll()) != null; sent++) {
+                    sendStartedAt = System.nanoTime();
+                    sendingThread = Thread.currentThread();
+                    try {
+                        emitter.send(event);
+                    } finally {
+                        sendingThread = null;
+                    }
+                    delivered.increment();
+                }
+                if (closed.get()) {
+                    // Dropped as stalled while the last write was still blocked
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter callbacks may not fire for a broken pipe
+                close();
+            } finally {
+                Thread.interrupted(); // an interrupt aimed at a finished send must not hit the next session
+                draining.set(false);
+                // An event offered while we were finishing up would otherwise wait for the next one
+                if (!outbound.isEmpty() && !closed.get()) {
+                    schedule();
+                }
+            }
+        }
+        
+        void close() {
+            unregister(this);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.datingapp.service;
+
+import com.datingapp.dto.QuickMessageResponse;
+import com.datingapp.event.QuickMessageCreatedEvent;
+import com.datingapp.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Immutable snapshots of each couple's quick-message palette, kept in step
+ * with creates and deletes on this instance. Snapshots also expire after
+ * {@code app.quick-message.cache-ttl-ms} to pick up changes made elsewhere.
+ *
+ * <p>A load first leaves a pending marker for its couple and only installs
+ * what it read if the marker is still there; a write to that couple in the
+ * meantime drops the marker, so a snapshot read before the write is never
+ * kept. Writes to other couples do not affect it.
+ */
+@Component
+public class QuickMessagePaletteCache implements MetricsSource {
+    
+    @Value("${app.quick-message.cache-size:10000}")
+    private int maxEntries;
+    
+    @Value("${app.quick-message.cache-ttl-ms:60000}")
+    private long ttlMs;
+    
+    private final Map<Long, Snapshot> entries = new ConcurrentHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    /** Returns the cached palette, or null if it has to be loaded. */
+    public List<QuickMessageResponse> find(Long coupleId) {
+        Snapshot snapshot = entries.get(coupleId);
+        if (snapshot == null || snapshot.isPending()) {
+            return null;
+        }
+        if (snapshot.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(coupleId, snapshot);
+            return null;
+        }
+        return snapshot.messages;
+    }
+    
+    public List<QuickMessageResponse> get(Long coupleId, Supplier<List<QuickMessageResponse>> loader) {
+        List<QuickMessageResponse> cached = find(coupleId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        // Concurrent loads share one marker, none of them saw a write made after it
+        Snapshot pending = entries.compute(coupleId, (id, current) -> current != null && current.isPending()
+                && current.expiresAt > System.currentTimeMillis()
+                ? current
+                : new Snapshot(null, System.currentTimeMillis() + ttlMs));
+        List<QuickMessageResponse> loaded = List.copyOf(loader.get());
+        entries.computeIfPresent(coupleId, (id, current) -> current == pending
+                ? new Snapshot(loaded, System.currentTimeMillis() + ttlMs)
+                : current);
+        return loaded;
+    }
+    
+    @TransactionalEventListener
+    public void onQuickMessageCreated(QuickMessageCreatedEvent event) {
+        added(event.getCoupleId(), event.getMessage());
+    }
+    
+    /** Call once the message is committed. */
+    public void added(Long coupleId, QuickMessageResponse message) {
+        entries.compute(coupleId, (id, current) -> {
+            if (current == null || current.isPending()) {
+                return null;
+            }
+            List<QuickMessageResponse> messages = new ArrayList<>(current.messages.size() + 1);
+            messages.addAll(current.messages);
+            messages.add(message);
+            return new Snapshot(List.copyOf(messages), current.expiresAt);
+        });
+    }
+    
+    /** Call once the delete is committed. */
+    public void removed(Long coupleId, Long messageId) {
+        entries.compute(coupleId, (id, current) -> {
+            if (current == null || current.isPending()) {
+                return null;
+            }
+            List<QuickMessageResponse> messages = new ArrayList<>(current.messages);
+            messages.removeIf(message -> message.getId().equals(messageId));
+            return new Snapshot(List.copyOf(messages), current.expiresAt);
+        });
+    }
+    
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(snapshot -> snapshot.expiresAt <= now);
+        
+        // Still full: drop arbitrary entries, they are simply reloaded on next use
+        Iterator<Long> it = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "quickMessagePalettes";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        return Map.of("entries", entries.size(), "hits", hits.sum(), "misses", misses.sum());
+    }
+    
+    // Messages are null while a load is pending
+    private record Snapshot(List<QuickMessageResponse> messages, long expiresAt) {
+        boolean isPending() {
+            return messages == null;
+        }
+    }
+}
@@ -2,61 +2,80 @@ package com.datingapp.service;
 
 import com.datingapp.dto.QuickMessageRequest;
 import com.datingapp.dto.QuickMessageResponse;
-import com.datingapp.entity.Couple;
-import com.datingapp.entity.QuickMessage;
-import com.datingapp.repository.CoupleRepository;
+import com.datingapp.event.PartnerEvent;
+import com.datingapp.event.QuickMessageCreatedEvent;
 import com.datingapp.repository.QuickMessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class QuickMessageService {
+    // Checks the per-couple limit and inserts in one statement; callers hold the couple row lock
+    private static final String INSERT_IF_BELOW_LIMIT_SQL =
+            "INSERT INTO quick_messages (couple_id, content, created_by_user_id, created_at) "
+            + "SELECT ?, ?, ?, ? WHERE (SELECT COUNT(*) FROM quick_messages WHERE couple_id = ?) < ? "
+            + "RETURNING id";
     
     @Autowired
     private QuickMessageRepository quickMessageRepository;
     
     @Autowired
-    private CoupleRepository coupleRepository;
+    private CoupleResolver coupleResolver;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private QuickMessagePaletteCache paletteCache;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     
     @Value("${app.quick-message.max-messages}")
     private int maxMessages;
     
     @Transactional
     public QuickMessageResponse createMessage(Long userId, QuickMessageRequest request) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
         
-        // Check message limit
-        long messageCount = quickMessageRepository.countByCoupleId(couple.getId());
-        if (messageCount >= maxMessages) {
+        // Check message limit against the cached palette first, the insert re-checks it in the database
+        List<QuickMessageResponse> palette = paletteCache.find(couple.getCoupleId());
+        if (palette != null && palette.size() >= maxMessages) {
             throw new RuntimeException("Maximum number of messages reached");
         }
         
-        QuickMessage message = new QuickMessage();
-        message.setCoupleId(couple.getId());
-        message.setContent(request.getContent());
-        message.setCreatedByUserId(userId);
+        // The count in the insert only sees rows committed before it started, so concurrent creates
+        // for one couple are serialized on the couple row; the insert then runs with a fresh snapshot
+        jdbcTemplate.queryForObject("SELECT id FROM couples WHERE id = ? FOR UPDATE", Long.class, couple.getCoupleId());
         
-        message = quickMessageRepository.save(message);
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS); // column precision
+        Long id = jdbcTemplate.query(INSERT_IF_BELOW_LIMIT_SQL, (rs, row) -> rs.getLong(1),
+                        couple.getCoupleId(), request.getContent(), userId, Timestamp.valueOf(createdAt),
+                        couple.getCoupleId(), maxMessages)
+                .stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Maximum number of messages reached"));
         
-        return new QuickMessageResponse(
-                message.getId(),
-                message.getContent(),
-                message.getCreatedByUserId(),
-                message.getCreatedAt()
-        );
+        QuickMessageResponse response = new QuickMessageResponse(id, request.getContent(), userId, createdAt);
+        eventPublisher.publishEvent(new QuickMessageCreatedEvent(couple.getCoupleId(), response));
+        eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.QUICK_MESSAGE_CREATED, response));
+        return response;
     }
     
     public List<QuickMessageResponse> getMessages(Long userId) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
         
-        return quickMessageRepository.findByCoupleIdOrderByCreatedAtAsc(couple.getId())
+        return paletteCache.get(couple.getCoupleId(), () -> quickMessageRepository
+                .findByCoupleIdOrderByCreatedAtAsc(couple.getCoupleId())
                 .stream()
                 .map(message -> new QuickMessageResponse(
                         message.getId(),
@@ -64,22 +83,18 @@ public class QuickMessageService {
                         message.getCreatedByUserId(),
                         message.getCreatedAt()
                 ))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
-    @Transactional
     public void deleteMessage(Long userId, Long messageId) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
         
-        QuickMessage message = quickMessageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
-        
-        if (!message.getCoupleId().equals(couple.getId())) {
-            throw new RuntimeException("Message does not belong to this couple");
+        // Scoped to the couple, so another couple's message is simply not found
+        if (quickMessageRepository.deleteByIdAndCoupleId(messageId, couple.getCoupleId()) == 0) {
+            throw new RuntimeException("Message not found");
         }
         
-        quickMessageRepository.delete(message);
+        paletteCache.removed(couple.getCoupleId(), messageId);
+        eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.QUICK_MESSAGE_DELETED, messageId));
     }
 }
-
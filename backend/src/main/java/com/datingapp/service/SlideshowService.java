@@ -1,171 +1,361 @@
 package com.datingapp.service;
 
+import com.datingapp.dto.MoveSlideshowImageRequest;
 import com.datingapp.dto.ReorderSlideshowRequest;
 import com.datingapp.dto.SlideshowImageResponse;
-import com.datingapp.entity.Couple;
 import com.datingapp.entity.SlideshowImage;
-import com.datingapp.repository.CoupleRepository;
+import com.datingapp.event.PartnerEvent;
+import com.datingapp.exception.ConflictException;
 import com.datingapp.repository.SlideshowImageRepository;
+import com.datingapp.security.ImageUrlSigner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class SlideshowService {
+    private static final long TRANSFER_CHUNK_BYTES = 256 * 1024;
+    // Spacing between order keys; a move halves the gap it lands in
+    private static final int ORDER_GAP = 1 << 16;
+    private static final String RESPACE_SQL =
+            "UPDATE slideshow_images s SET order_index = r.position * ? " +
+            "FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY order_index, id) AS position " +
+            "FROM slideshow_images WHERE couple_id = ?) r WHERE s.id = r.id";
+    private static final String REORDER_SQL =
+            "UPDATE slideshow_images s SET order_index = v.position * ? " +
+            "FROM unnest(?::bigint[]) WITH ORDINALITY AS v(id, position) " +
+            "WHERE s.id = v.id AND s.couple_id = ?";
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp",
+            "image/heic", ".heic");
     
     @Autowired
     private SlideshowImageRepository slideshowImageRepository;
     
     @Autowired
-    private CoupleRepository coupleRepository;
+    private CoupleResolver coupleResolver;
     
-    @Value("${app.slideshow.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ImageVariantProcessor imageVariantProcessor;
+    
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+    
+    @Value("${app.slideshow.staging-dir}")
+    private String stagingDir;
     
     @Value("${app.slideshow.max-images}")
     private int maxImages;
     
-    @Transactional
+    @Value("${app.slideshow.max-upload-bytes}")
+    private long maxUploadBytes;
+    
     public SlideshowImageResponse uploadImage(Long userId, MultipartFile file) throws IOException {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase(Locale.ROOT)
+                : "";
+        // Moves the container's spooled part into place rather than copying it, then hashes it there
+        return store(userId, extension, target -> {
+            file.transferTo(target);
+            return digestOf(target);
+        });
+    }
+    
+    /**
+     * Stores an image sent as the raw request body. The bytes are streamed
+     * straight into the upload directory, without a multipart spool file,
+     * and hashed on the way.
+     */
+    public SlideshowImageResponse uploadImage(Long userId, InputStream body, String contentType) throws IOException {
+        String mediaType = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        String extension = EXTENSIONS.get(mediaType);
+        if (extension == null) {
+            throw new RuntimeException("Unsupported image type");
+        }
+        return store(userId, extension, target -> streamTo(body, target));
+    }
+    
+    // Two phases: write the file without touching the database, then record it in short inserts
+    private SlideshowImageResponse store(Long userId, String extension, ContentWriter writer) throws IOException {
+        CoupleMembership couple = coupleResolver.require(userId);
         
         // Check max images limit
-        long imageCount = slideshowImageRepository.findByCoupleIdOrderByOrderIndexAsc(couple.getId()).size();
-        if (imageCount >= maxImages) {
+        if (slideshowImageRepository.countByCoupleId(couple.getCoupleId()) >= maxImages) {
             throw new RuntimeException("Maximum number of images reached");
         }
         
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : "";
-        String filename = UUID.randomUUID().toString() + extension;
-        Path filePath = uploadPath.resolve(filename);
+        // Create staging directory if it doesn't exist
+        Path stagingPath = Paths.get(stagingDir);
+        Files.createDirectories(stagingPath);
         
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Written under a temporary name, then stored under its digest or dropped if that content exists already
+        Path partialPath = stagingPath.resolve(UUID.randomUUID() + ".part");
+        String filename;
+        try {
+            String digest = writer.writeTo(partialPath);
+            filename = imageBlobStore.acquire(partialPath, digest, extension);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partialPath);
+            throw e;
+        }
         
-        // Get next order index
-        Integer maxOrder = slideshowImageRepository.findMaxOrderIndexByCoupleId(couple.getId());
-        int nextOrder = (maxOrder != null ? maxOrder + 1 : 0);
+        SlideshowImage image;
+        try {
+            // Get next order index, one gap after the last image
+            Integer maxOrder = slideshowImageRepository.findMaxOrderIndexByCoupleId(couple.getCoupleId());
+            if (maxOrder != null && maxOrder > Integer.MAX_VALUE - ORDER_GAP) {
+                respace(couple.getCoupleId());
+                maxOrder = slideshowImageRepository.findMaxOrderIndexByCoupleId(couple.getCoupleId());
+            }
+            int nextOrder = (maxOrder != null ? maxOrder + ORDER_GAP : ORDER_GAP);
+            
+            // Save to database
+            image = new SlideshowImage();
+            image.setCoupleId(couple.getCoupleId());
+            image.setImageUrl("/uploads/" + filename);
+            image.setOrderIndex(nextOrder);
+            image.setUploadedByUserId(userId);
+            
+            image = slideshowImageRepository.save(image);
+        } catch (RuntimeException e) {
+            imageBlobStore.release(filename);
+            throw e;
+        }
         
-        // Save to database
-        SlideshowImage image = new SlideshowImage();
-        image.setCoupleId(couple.getId());
-        image.setImageUrl("/uploads/" + filename);
-        image.setOrderIndex(nextOrder);
-        image.setUploadedByUserId(userId);
+        // Variants are made in the background; the upload does not wait for them
+        imageVariantProcessor.submit(image.getId(), filename);
         
-        image = slideshowImageRepository.save(image);
+        SlideshowImageResponse response = toResponse(image);
+        eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.SLIDESHOW_IMAGE_ADDED, response));
+        return response;
+    }
+    
+    private String streamTo(InputStream body, Path target) throws IOException {
+        MessageDigest sha256 = sha256();
+        try (ReadableByteChannel in = Channels.newChannel(new DigestInputStream(body, sha256));
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(in, position, TRANSFER_CHUNK_BYTES)) > 0) {
+                position += transferred;
+                if (position > maxUploadBytes) {
+                    throw new RuntimeException("Image exceeds the maximum upload size");
+                }
+            }
+            if (position == 0) {
+                throw new RuntimeException("Image is empty");
+            }
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+    
+    private static String digestOf(Path file) throws IOException {
+        MessageDigest sha256 = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha256)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE ships SHA-256
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ContentWriter {
+        /** Writes the content to the target and returns its hex SHA-256. */
+        String writeTo(Path target) throws IOException;
+    }
+    
+    public List<SlideshowImageResponse> getSlideshow(Long userId) {
+        CoupleMembership couple = coupleResolver.require(userId);
         
+        return slideshowImageRepository.findByCoupleIdOrderByOrderIndexAscIdAsc(couple.getCoupleId())
+                .stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+    
+    private SlideshowImageResponse toResponse(SlideshowImage image) {
         return new SlideshowImageResponse(
                 image.getId(),
-                image.getImageUrl(),
+                imageUrlSigner.sign(image.getImageUrl()),
+                imageUrlSigner.sign(image.getThumbnailUrl()),
+                imageUrlSigner.sign(image.getDisplayUrl()),
+                image.getBlurhash(),
                 image.getOrderIndex(),
                 image.getUploadedByUserId(),
                 image.getCreatedAt()
         );
     }
     
-    public List<SlideshowImageResponse> getSlideshow(Long userId) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+    /**
+     * Moves one image next to the given neighbours by giving it an order key
+     * between theirs. Keys are spaced {@link #ORDER_GAP} apart, so this is a
+     * single-row update until repeated moves into the same spot use up the
+     * gap and the slideshow is respaced.
+     */
+    @Transactional
+    public SlideshowImageResponse moveImage(Long userId, Long imageId, MoveSlideshowImageRequest request) {
+        CoupleMembership couple = coupleResolver.require(userId);
+        Long afterId = request.getAfterImageId();
+        Long beforeId = request.getBeforeImageId();
+        if ((afterId == null && beforeId == null) || imageId.equals(afterId) || imageId.equals(beforeId)) {
+            throw new RuntimeException("Invalid position");
+        }
         
-        return slideshowImageRepository.findByCoupleIdOrderByOrderIndexAsc(couple.getId())
-                .stream()
-                .map(image -> new SlideshowImageResponse(
-                        image.getId(),
-                        image.getImageUrl(),
-                        image.getOrderIndex(),
-                        image.getUploadedByUserId(),
-                        image.getCreatedAt()
-                ))
-                .collect(Collectors.toList());
+        lockSlideshow(couple.getCoupleId());
+        SlideshowImage image = slideshowImageRepository.findByIdAndCoupleId(imageId, couple.getCoupleId())
+                .orElseThrow(() -> new RuntimeException("Image not found"));
+        
+        Integer orderIndex = orderIndexBetween(couple.getCoupleId(), imageId, afterId, beforeId);
+        boolean respaced = orderIndex == null;
+        if (respaced) {
+            respace(couple.getCoupleId());
+            orderIndex = orderIndexBetween(couple.getCoupleId(), imageId, afterId, beforeId);
+        }
+        // Only the key is written; the variant processor may be updating the same row
+        slideshowImageRepository.updateOrderIndex(imageId, orderIndex);
+        
+        SlideshowImageResponse response = toResponse(image);
+        response.setOrderIndex(orderIndex);
+        if (respaced) {
+            // Every key changed, so the partner gets the whole order
+            eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.SLIDESHOW_REORDERED,
+                    slideshowImageRepository.findIdsInOrder(couple.getCoupleId())));
+        } else {
+            eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.SLIDESHOW_IMAGE_MOVED, response));
+        }
+        return response;
+    }
+    
+    // Returns null when there is no room left between the neighbours
+    private Integer orderIndexBetween(Long coupleId, Long imageId, Long afterId, Long beforeId) {
+        Integer lower = afterId != null ? requireOrderIndex(afterId, coupleId) : null;
+        Integer upper = beforeId != null ? requireOrderIndex(beforeId, coupleId) : null;
+        if (lower == null) {
+            lower = slideshowImageRepository.findOrderIndexBelow(coupleId, upper, imageId);
+        } else if (upper == null) {
+            upper = slideshowImageRepository.findOrderIndexAbove(coupleId, lower, imageId);
+        }
+        
+        if (lower == null) {
+            return (long) upper - ORDER_GAP >= Integer.MIN_VALUE ? upper - ORDER_GAP : null;
+        }
+        if (upper == null) {
+            return (long) lower + ORDER_GAP <= Integer.MAX_VALUE ? lower + ORDER_GAP : null;
+        }
+        // Both neighbours came from the client, whose list may be stale
+        if (afterId != null && beforeId != null
+                && (upper < lower || slideshowImageRepository.countBetween(coupleId, lower, upper, imageId) > 0)) {
+            throw new ConflictException("The slideshow has changed, reload it and try again");
+        }
+        return upper - lower >= 2 ? lower + (upper - lower) / 2 : null;
+    }
+    
+    private Integer requireOrderIndex(Long imageId, Long coupleId) {
+        return slideshowImageRepository.findOrderIndex(imageId, coupleId)
+                .orElseThrow(() -> new RuntimeException("Image not found"));
+    }
+    
+    // Rewrites every key of the slideshow, keeping the current order, in one statement
+    private void respace(Long coupleId) {
+        jdbcTemplate.update(RESPACE_SQL, ORDER_GAP, coupleId);
+    }
+    
+    // Serializes moves within one slideshow so two of them never compute keys from the same neighbours
+    private void lockSlideshow(Long coupleId) {
+        jdbcTemplate.queryForObject("SELECT id FROM couples WHERE id = ? FOR UPDATE", Long.class, coupleId);
     }
     
     @Transactional
     public void reorderImages(Long userId, ReorderSlideshowRequest request) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
-        
-        List<SlideshowImage> images = slideshowImageRepository.findByCoupleIdOrderByOrderIndexAsc(couple.getId());
+        CoupleMembership couple = coupleResolver.require(userId);
+        List<Long> imageIds = request.getImageIds();
         
-        // Verify all image IDs belong to this couple
-        List<Long> imageIds = images.stream().map(SlideshowImage::getId).collect(Collectors.toList());
-        if (!imageIds.containsAll(request.getImageIds()) || 
-            request.getImageIds().size() != imageIds.size()) {
+        // Verify the request is a permutation of this couple's images
+        lockSlideshow(couple.getCoupleId());
+        if (new HashSet<>(imageIds).size() != imageIds.size()
+                || slideshowImageRepository.countByCoupleId(couple.getCoupleId()) != imageIds.size()) {
             throw new RuntimeException("Invalid image IDs");
         }
         
-        // Update order indices
-        for (int i = 0; i < request.getImageIds().size(); i++) {
-            Long imageId = request.getImageIds().get(i);
-            SlideshowImage image = images.stream()
-                    .filter(img -> img.getId().equals(imageId))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Image not found"));
-            image.setOrderIndex(i);
-            slideshowImageRepository.save(image);
+        // All keys in one statement; an ID of another couple leaves the count short and rolls it back
+        int updated = jdbcTemplate.update(REORDER_SQL, ps -> {
+            ps.setInt(1, ORDER_GAP);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", imageIds.toArray()));
+            ps.setLong(3, couple.getCoupleId());
+        });
+        if (updated != imageIds.size()) {
+            throw new RuntimeException("Invalid image IDs");
         }
+        
+        eventPublisher.publishEvent(new PartnerEvent(
+                couple.getPartnerId(), PartnerEvent.SLIDESHOW_REORDERED, imageIds));
     }
     
     @Transactional
     public void deleteImage(Long userId, Long imageId) {
-        Couple couple = coupleRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("User is not paired"));
+        CoupleMembership couple = coupleResolver.require(userId);
         
         SlideshowImage image = slideshowImageRepository.findById(imageId)
                 .orElseThrow(() -> new RuntimeException("Image not found"));
         
-        if (!image.getCoupleId().equals(couple.getId())) {
+        if (!image.getCoupleId().equals(couple.getCoupleId())) {
             throw new RuntimeException("Image does not belong to this couple");
         }
         
-        // Delete file
-        try {
-            String imageUrl = image.getImageUrl();
-            if (imageUrl.startsWith("/uploads/")) {
-                String filename = imageUrl.substring("/uploads/".length());
-                Path filePath = Paths.get(uploadDir, filename);
-                Files.deleteIfExists(filePath);
-            }
-        } catch (IOException e) {
-            // Log error but continue with database deletion
-            System.err.println("Failed to delete image file: " + e.getMessage());
-        }
-        
-        // Delete from database
+        // Delete from database; the file goes once no other image shares it
         slideshowImageRepository.delete(image);
-        
-        // Reorder remaining images
-        List<SlideshowImage> remainingImages = slideshowImageRepository
-                .findByCoupleIdOrderByOrderIndexAsc(couple.getId());
-        for (int i = 0; i < remainingImages.size(); i++) {
-            SlideshowImage remainingImage = remainingImages.get(i);
-            remainingImage.setOrderIndex(i);
-            slideshowImageRepository.save(remainingImage);
+        String imageUrl = image.getImageUrl();
+        if (imageUrl.startsWith("/uploads/")) {
+            imageBlobStore.release(imageUrl.substring("/uploads/".length()));
         }
+        eventPublisher.publishEvent(new PartnerEvent(couple.getPartnerId(), PartnerEvent.SLIDESHOW_IMAGE_DELETED, imageId));
+        // Order keys are sparse, so the remaining images keep theirs
     }
 }
 
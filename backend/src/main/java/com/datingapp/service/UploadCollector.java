@@ -0,0 +1,230 @@
+package com.datingapp.service;
+
+import com.datingapp.entity.ImageBlob;
+import com.datingapp.metrics.MetricsSource;
+import com.datingapp.repository.ImageBlobRepository;
+import com.datingapp.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Array;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Physically removes slideshow files nothing references any more.
+ *
+ * <p>Each run first reclaims blobs whose reference count dropped to zero,
+ * then clears abandoned uploads out of the staging directory and streams the
+ * keys of the {@link ImageStorage}, checking them against the database one
+ * batch at a time, so the full listing is never held in memory. Anything
+ * younger than the grace period is left alone, which covers uploads and
+ * variants that are still being recorded.
+ */
+@Component
+public class UploadCollector implements MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(UploadCollector.class);
+    private static final String LIVE_DIGESTS_SQL =
+            "SELECT digest FROM image_blobs WHERE ref_count > 0 AND digest = ANY(?)";
+    // Files from before content addressing are only known by their URLs
+    private static final String LIVE_URLS_SQL =
+            "SELECT image_url, thumbnail_url, display_url FROM slideshow_images "
+            + "WHERE image_url = ANY(?) OR thumbnail_url = ANY(?) OR display_url = ANY(?)";
+    
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+    
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ImageStorage imageStorage;
+    
+    @Value("${app.slideshow.staging-dir}")
+    private String stagingDir;
+    
+    @Value("${app.slideshow.collector.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.slideshow.collector.grace-minutes:60}")
+    private long graceMinutes;
+    
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong blobsReclaimed = new AtomicLong();
+    private final AtomicLong orphansDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong lastRunMs = new AtomicLong();
+    
+    @Scheduled(fixedDelayString = "${app.slideshow.collector.interval-ms:3600000}",
+            initialDelayString = "${app.slideshow.collector.initial-delay-ms:300000}")
+    public void collect() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(graceMinutes);
+        try {
+            reclaimReleasedBlobs(cutoff);
+            Instant cutoffInstant = cutoff.atZone(ZoneId.systemDefault()).toInstant();
+            sweepStaging(cutoffInstant);
+            sweepOrphans(cutoffInstant);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload collection stopped early: {}", e.getMessage());
+        } finally {
+            lastRunMs.set((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    
+    private void reclaimReleasedBlobs(LocalDateTime cutoff) {
+        List<ImageBlob> batch;
+        do {
+            // Always the first page: reclaimed tombstones drop out, and re-uploaded ones no longer match
+            batch = imageBlobRepository.findByRefCountLessThanEqualAndReleasedAtBefore(
+                    0, cutoff, PageRequest.of(0, batchSize));
+            for (ImageBlob blob : batch) {
+                bytesReclaimed.addAndGet(imageBlobStore.reclaim(blob));
+                blobsReclaimed.incrementAndGet();
+            }
+        } while (batch.size() == batchSize);
+    }
+    
+    private void sweepOrphans(Instant cutoff) throws IOException {
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        imageStorage.scan(cutoff, key -> {
+            filesScanned.incrementAndGet();
+            batch.add(new Candidate(key, blobKey(key)));
+            if (batch.size() == batchSize) {
+                reconcile(batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            reconcile(batch);
+        }
+    }
+    
+    // Uploads and variants that were never finished
+    private void sweepStaging(Instant cutoff) throws IOException {
+        Path stagingPath = Paths.get(stagingDir);
+        if (!Files.isDirectory(stagingPath)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(stagingPath, "*.part")) {
+            for (Path file : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    deleteAbandoned(file, attributes.size());
+                }
+            }
+        }
+    }
+    
+    private void reconcile(List<Candidate> batch) {
+        List<String> digests = new ArrayList<>();
+        List<String> legacyUrls = new ArrayList<>();
+        for (Candidate candidate : batch) {
+            if (ImageBlobStore.DIGEST.matcher(candidate.blobKey()).matches()) {
+                digests.add(candidate.blobKey());
+            } else {
+                legacyUrls.add("/uploads/" + candidate.key());
+            }
+        }
+        
+        Set<String> live = new HashSet<>();
+        if (!digests.isEmpty()) {
+            live.addAll(jdbcTemplate.query(LIVE_DIGESTS_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", digests.toArray())),
+                    (rs, rowNum) -> rs.getString(1)));
+        }
+        if (!legacyUrls.isEmpty()) {
+            jdbcTemplate.query(LIVE_URLS_SQL,
+                    ps -> {
+                        Array urls = ps.getConnection().createArrayOf("varchar", legacyUrls.toArray());
+                        ps.setArray(1, urls);
+                        ps.setArray(2, urls);
+                        ps.setArray(3, urls);
+                    },
+                    rs -> {
+                        for (int column = 1; column <= 3; column++) {
+                            String url = rs.getString(column);
+                            if (url != null) {
+                                live.add(url);
+                            }
+                        }
+                    });
+        }
+        
+        for (Candidate candidate : batch) {
+            boolean referenced = live.contains(candidate.blobKey())
+                    || live.contains("/uploads/" + candidate.key());
+            if (!referenced) {
+                long bytes = imageBlobStore.deleteOrphan(candidate.key(), candidate.blobKey());
+                if (bytes > 0) {
+                    orphansDeleted.incrementAndGet();
+                    bytesReclaimed.addAndGet(bytes);
+                }
+            }
+        }
+    }
+    
+    private void deleteAbandoned(Path file, long size) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                orphansDeleted.incrementAndGet();
+                bytesReclaimed.addAndGet(size);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete abandoned upload {}: {}", file, e.getMessage());
+        }
+    }
+    
+    // The digest a stored file or one of its variants belongs to, or the bare name of an older file
+    static String blobKey(String filename) {
+        for (String suffix : new String[] {ImageVariantProcessor.THUMBNAIL_SUFFIX, ImageVariantProcessor.DISPLAY_SUFFIX}) {
+            if (filename.endsWith(suffix)) {
+                return filename.substring(0, filename.length() - suffix.length());
+            }
+        }
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "uploadCollector";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("filesScanned", filesScanned.get());
+        metrics.put("blobsReclaimed", blobsReclaimed.get());
+        metrics.put("orphansDeleted", orphansDeleted.get());
+        metrics.put("bytesReclaimed", bytesReclaimed.get());
+        metrics.put("lastRunMs", lastRunMs.get());
+        return metrics;
+    }
+    
+    private record Candidate(String key, String blobKey) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.datingapp.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * One plain file per key in {@code app.slideshow.upload-dir}. The default,
+ * and the layout used before storage was pluggable.
+ */
+@Component
+@ConditionalOnProperty(name = "app.slideshow.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStorage implements ImageStorage {
+    
+    @Value("${app.slideshow.upload-dir}")
+    private String uploadDir;
+    
+    private Path root;
+    
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(uploadDir);
+        Files.createDirectories(root);
+    }
+    
+    @Override
+    public String getName() {
+        return "filesystem";
+    }
+    
+    @Override
+    public void put(String key, Path source) throws IOException {
+        // The staging directory is under the upload directory, so this is a rename
+        Files.move(source, resolve(key), StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    @Override
+    public boolean exists(String key) {
+        return ImageStorage.isValidKey(key) && Files.isRegularFile(root.resolve(key));
+    }
+    
+    @Override
+    public StoredImage get(String key) throws IOException {
+        if (!ImageStorage.isValidKey(key)) {
+            return null;
+        }
+        Path file = root.resolve(key);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        return new PlainFile(file, attributes.size(), attributes.lastModifiedTime().toInstant());
+    }
+    
+    @Override
+    public long delete(String key) throws IOException {
+        Path file = resolve(key);
+        try {
+            long size = Files.size(file);
+            Files.delete(file);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+    
+    @Override
+    public void scan(Instant writtenBefore, Consumer<String> visitor) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path file : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(writtenBefore)) {
+                    visitor.accept(file.getFileName().toString());
+                }
+            }
+        }
+    }
+    
+    private Path resolve(String key) {
+        if (!ImageStorage.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return root.resolve(key);
+    }
+    
+    private record PlainFile(Path file, long length, Instant lastModified) implements StoredImage {
+        
+        @Override
+        public InputStream openStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+        
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            try (FileChannel channel = FileChannel.open(file)) {
+                long end = position + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) {
+                        throw new IOException("Stored file ended early: " + file.getFileName());
+                    }
+                    position += sent;
+                }
+            }
+        }
+    }
+}
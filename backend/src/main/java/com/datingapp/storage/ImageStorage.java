@@ -0,0 +1,40 @@
+package com.datingapp.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Where slideshow image files are kept. The active implementation is chosen
+ * with {@code app.slideshow.storage.type}; keys are the file names that appear
+ * in {@code /uploads/} URLs. Stored content is never modified in place, only
+ * written whole and deleted.
+ */
+public interface ImageStorage {
+    
+    String getName();
+    
+    /** Stores a finished file under the key, consuming the source file. */
+    void put(String key, Path source) throws IOException;
+    
+    boolean exists(String key);
+    
+    /** Returns the stored content, or null if there is none. */
+    StoredImage get(String key) throws IOException;
+    
+    /** @return bytes freed, 0 if the key was not stored */
+    long delete(String key) throws IOException;
+    
+    /**
+     * Visits every key written before the cutoff. Implementations must not
+     * build the full listing in memory first.
+     */
+    void scan(Instant writtenBefore, Consumer<String> visitor) throws IOException;
+    
+    /** Rejects keys that could escape the storage location. */
+    static boolean isValidKey(String key) {
+        return key != null && !key.isEmpty() && !key.startsWith(".")
+                && key.indexOf('/') < 0 && key.indexOf('\\') < 0 && key.length() <= 100;
+    }
+}
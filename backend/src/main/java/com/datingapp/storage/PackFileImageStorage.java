@@ -0,0 +1,582 @@
+package com.datingapp.storage;
+
+import com.datingapp.metrics.MetricsSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Appends files to large segment files instead of keeping one file per key,
+ * so millions of images take a few hundred inodes.
+ *
+ * <p>Each record is a header (magic, type, key length, write time, referenced
+ * segment, value), the key, and for puts the content. A delete appends a
+ * tombstone naming the exact record it removes. The in-memory index of key to
+ * (segment, offset, length) is rebuilt at startup by reading the headers of
+ * every segment in order; a torn record at the end of the last segment is cut
+ * off. Reads are positional {@code FileChannel.transferTo} calls or read-only
+ * mappings, so the content never passes through a heap buffer.
+ *
+ * <p>A put reserves its space and writes its header as pending under the
+ * lock, copies and syncs the content without it, and is then committed by
+ * rewriting the header's type. Concurrent uploads only contend for the
+ * reservation; replay skips records that were never committed.
+ *
+ * <p>The compactor copies the live records of segments that are mostly dead
+ * into the active segment, together with tombstones that still shadow a
+ * record in another segment, and then deletes the old segment.
+ *
+ * <p>The index lives in this process only, so a pack directory supports a
+ * single writer: {@link #open()} takes an exclusive lock on it and fails if
+ * another instance holds it. Deployments with several backend instances on
+ * one volume must use the filesystem store or give each its own pack dir.
+ */
+@Component
+@ConditionalOnProperty(name = "app.slideshow.storage.type", havingValue = "pack")
+public class PackFileImageStorage implements ImageStorage, MetricsSource {
+    private static final Logger log = LoggerFactory.getLogger(PackFileImageStorage.class);
+    private static final int MAGIC = 0x494D4731; // "IMG1"
+    private static final byte PENDING = 0; // a put whose content is not yet complete
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int TYPE_OFFSET = 4;
+    // magic, type, key length, written at, referenced segment, value (length of a put, target offset of a delete)
+    private static final int HEADER_BYTES = 4 + 1 + 2 + 8 + 4 + 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final String LOCK_FILE = ".lock";
+    
+    @Value("${app.slideshow.storage.pack.dir}")
+    private String packDir;
+    
+    @Value("${app.slideshow.storage.pack.segment-bytes}")
+    private long segmentBytes;
+    
+    @Value("${app.slideshow.storage.pack.compact-below-live-ratio}")
+    private double compactBelowLiveRatio;
+    
+    private Path root;
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    
+    // Reservations, commits, index updates and segment swaps are serialized on this; reads take no lock
+    private volatile Segment active;
+    private final List<Segment> retired = new ArrayList<>();
+    
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong compactedBytes = new AtomicLong();
+    
+    @PostConstruct
+    synchronized void open() throws IOException {
+        root = Paths.get(packDir);
+        Files.createDirectories(root);
+        
+        lockChannel = FileChannel.open(root.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        directoryLock = lockChannel.tryLock();
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Pack directory " + root + " is in use by another instance; "
+                    + "the pack store supports a single writer");
+        }
+        
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+        
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = new Segment(ids.get(i), segmentPath(ids.get(i)), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(segment.id, segment);
+            replay(segment, i == ids.size() - 1);
+        }
+        active = ids.isEmpty() ? createSegment(1) : segments.get(ids.get(ids.size() - 1));
+        log.info("Opened {} pack segments holding {} files", segments.size(), index.size());
+    }
+    
+    @PreDestroy
+    synchronized void close() throws IOException {
+        active.channel.force(true);
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        closeRetired();
+        directoryLock.release();
+        lockChannel.close();
+    }
+    
+    @Override
+    public String getName() {
+        return "pack";
+    }
+    
+    @Override
+    public void put(String key, Path source) throws IOException {
+        checkKey(key);
+        long length = Files.size(source);
+        try (FileChannel in = FileChannel.open(source)) {
+            Reservation reservation;
+            synchronized (this) {
+                reservation = reserve(PUT, key, 0, length, System.currentTimeMillis());
+            }
+            try {
+                writeContent(reservation, in);
+                synchronized (this) {
+                    Entry entry = commit(reservation);
+                    Entry previous = index.get(key);
+                    // Replay lets the later record win, so a put reserved earlier but committed last must not
+                    if (previous == null || isAfter(entry, previous)) {
+                        index.put(key, entry);
+                        if (previous != null) {
+                            release(previous);
+                        }
+                    } else {
+                        release(entry);
+                    }
+                }
+                reservation.segment().channel.force(false);
+            } finally {
+                reservation.segment().writers.decrementAndGet();
+            }
+        }
+        Files.delete(source);
+    }
+    
+    @Override
+    public boolean exists(String key) {
+        return key != null && index.containsKey(key);
+    }
+    
+    @Override
+    public StoredImage get(String key) {
+        if (key == null) {
+            return null;
+        }
+        // A compaction may move the entry between the two lookups; the second sees the new one
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            Segment segment = segments.get(entry.segment());
+            if (segment != null) {
+                return new PackedImage(segment, entry);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public long delete(String key) throws IOException {
+        Entry entry;
+        Reservation tombstone;
+        synchronized (this) {
+            entry = index.get(key);
+            if (entry == null) {
+                return 0;
+            }
+            tombstone = reserve(DELETE, key, entry.segment(), entry.offset(), System.currentTimeMillis());
+            index.remove(key);
+            release(entry);
+        }
+        tombstone.segment().channel.force(false);
+        return entry.length();
+    }
+    
+    @Override
+    public void scan(Instant writtenBefore, Consumer<String> visitor) {
+        long cutoff = writtenBefore.toEpochMilli();
+        index.forEach((key, entry) -> {
+            if (entry.writtenAt() < cutoff) {
+                visitor.accept(key);
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${app.slideshow.storage.pack.compaction-interval-ms:600000}")
+    public void compact() {
+        synchronized (this) {
+            // Reads still using these have had a whole interval to finish
+            closeRetired();
+        }
+        for (Segment segment : List.copyOf(segments.values())) {
+            // Segments still receiving content are left for the next run
+            if (segment == active || segment.writers.get() > 0) {
+                continue;
+            }
+            if (segment.size == 0 || (double) segment.liveBytes.get() / segment.size < compactBelowLiveRatio) {
+                try {
+                    compact(segment);
+                } catch (IOException e) {
+                    log.warn("Could not compact pack segment {}: {}", segment.id, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void compact(Segment segment) throws IOException {
+        long position = 0;
+        while (position < segment.size) {
+            Record record = readRecord(segment.channel, position, segment.size);
+            if (record == null) {
+                throw new IOException("Unreadable record at " + position);
+            }
+            if (record.type() == PUT) {
+                moveIfLive(segment, record);
+            } else if (record.type() == DELETE
+                    && record.segmentRef() != segment.id && segments.containsKey(record.segmentRef())) {
+                // Still hides a record elsewhere, which would come back on the next replay without it
+                synchronized (this) {
+                    reserve(DELETE, record.key(), record.segmentRef(), record.value(), record.writtenAt());
+                }
+            }
+            position = record.next();
+        }
+        // Earlier segments were synced when they were sealed
+        active.channel.force(false);
+        
+        synchronized (this) {
+            segments.remove(segment.id);
+            retired.add(segment);
+        }
+        Files.delete(segment.path);
+        compactions.incrementAndGet();
+        compactedBytes.addAndGet(segment.size);
+    }
+    
+    private void moveIfLive(Segment segment, Record record) throws IOException {
+        Entry current;
+        Reservation reservation;
+        synchronized (this) {
+            current = index.get(record.key());
+            if (current == null || current.segment() != segment.id || current.offset() != record.dataOffset()) {
+                return;
+            }
+            reservation = reserve(PUT, record.key(), 0, record.value(), record.writtenAt());
+        }
+        try {
+            // Only the compactor reads through this channel's own position
+            segment.channel.position(record.dataOffset());
+            writeContent(reservation, segment.channel);
+            synchronized (this) {
+                // A put or delete of the key in the meantime supersedes the copy, which stays uncommitted
+                if (current.equals(index.get(record.key()))) {
+                    index.put(record.key(), commit(reservation));
+                    release(current);
+                }
+            }
+        } finally {
+            reservation.segment().writers.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Claims space in the active segment and writes the record header. A put
+     * is written as pending and counted as a writer of its segment until the
+     * caller has finished with it; a tombstone is complete at once. Caller
+     * holds the lock.
+     */
+    private Reservation reserve(byte type, String key, int segmentRef, long value, long writtenAt) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long recordBytes = HEADER_BYTES + keyBytes.length + (type == PUT ? value : 0);
+        if (active.size > 0 && active.size + recordBytes > segmentBytes) {
+            active.channel.force(true);
+            active = createSegment(active.id + 1);
+        }
+        
+        Segment segment = active;
+        long position = segment.size;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length)
+                .putInt(MAGIC)
+                .put(type == PUT ? PENDING : type)
+                .putShort((short) keyBytes.length)
+                .putLong(writtenAt)
+                .putInt(segmentRef)
+                .putLong(value)
+                .put(keyBytes)
+                .flip();
+        long dataOffset = position + header.remaining();
+        while (header.hasRemaining()) {
+            segment.channel.write(header, position + header.position());
+        }
+        
+        segment.size = position + recordBytes;
+        if (type == PUT) {
+            segment.writers.incrementAndGet();
+        }
+        return new Reservation(segment, position, dataOffset, value, writtenAt);
+    }
+    
+    // Runs without the lock; on failure the record stays pending and is skipped by replay
+    private static void writeContent(Reservation reservation, FileChannel data) throws IOException {
+        FileChannel channel = reservation.segment().channel;
+        long copied = 0;
+        while (copied < reservation.length()) {
+            long transferred = channel.transferFrom(data, reservation.dataOffset() + copied, reservation.length() - copied);
+            if (transferred <= 0) {
+                throw new IOException("Source ended after " + copied + " of " + reservation.length() + " bytes");
+            }
+            copied += transferred;
+        }
+        channel.force(false);
+    }
+    
+    // Caller holds the lock and syncs the segment once it has released it
+    private Entry commit(Reservation reservation) throws IOException {
+        Segment segment = reservation.segment();
+        ByteBuffer type = ByteBuffer.wrap(new byte[] {PUT});
+        while (type.hasRemaining()) {
+            segment.channel.write(type, reservation.position() + TYPE_OFFSET);
+        }
+        segment.liveBytes.addAndGet(reservation.length());
+        return new Entry(segment.id, reservation.dataOffset(), reservation.length(), reservation.writtenAt());
+    }
+    
+    private static boolean isAfter(Entry entry, Entry other) {
+        return entry.segment() != other.segment() ? entry.segment() > other.segment() : entry.offset() > other.offset();
+    }
+    
+    private void replay(Segment segment, boolean last) throws IOException {
+        long end = segment.channel.size();
+        long position = 0;
+        while (position < end) {
+            Record record = readRecord(segment.channel, position, end);
+            if (record == null) {
+                break;
+            }
+            if (record.type() == PUT) {
+                Entry previous = index.put(record.key(),
+                        new Entry(segment.id, record.dataOffset(), record.value(), record.writtenAt()));
+                if (previous != null) {
+                    release(previous);
+                }
+                segment.liveBytes.addAndGet(record.value());
+            } else if (record.type() == DELETE) {
+                Entry current = index.get(record.key());
+                if (current != null && current.segment() == record.segmentRef() && current.offset() == record.value()) {
+                    index.remove(record.key());
+                    release(current);
+                }
+            }
+            position = record.next();
+        }
+        
+        if (position < end) {
+            if (!last) {
+                throw new IOException("Corrupt pack segment " + segment.path + " at offset " + position);
+            }
+            log.warn("Cutting a torn record off pack segment {} at offset {}", segment.id, position);
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+    }
+    
+    // Returns null if the record at this position is incomplete or not a record at all
+    private static Record readRecord(FileChannel channel, long position, long end) throws IOException {
+        if (position + HEADER_BYTES > end) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, position);
+        if (header.getInt(0) != MAGIC) {
+            return null;
+        }
+        byte type = header.get(4);
+        int keyLength = header.getShort(5) & 0xFFFF;
+        long writtenAt = header.getLong(7);
+        int segmentRef = header.getInt(15);
+        long value = header.getLong(19);
+        
+        long dataOffset = position + HEADER_BYTES + keyLength;
+        long next = type == DELETE ? dataOffset : dataOffset + value;
+        if ((type != PUT && type != DELETE && type != PENDING) || value < 0 || next > end) {
+            return null;
+        }
+        ByteBuffer key = ByteBuffer.allocate(keyLength);
+        readFully(channel, key, position + HEADER_BYTES);
+        return new Record(type, new String(key.array(), StandardCharsets.UTF_8), writtenAt, segmentRef, value,
+                dataOffset, next);
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of pack segment");
+            }
+        }
+    }
+    
+    private void release(Entry entry) {
+        Segment segment = segments.get(entry.segment());
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-entry.length());
+        }
+    }
+    
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, segmentPath(id),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    private Path segmentPath(int id) {
+        return root.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+    
+    private void closeRetired() {
+        for (Segment segment : retired) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                log.debug("Closing retired pack segment {} failed", segment.id, e);
+            }
+        }
+        retired.clear();
+    }
+    
+    private static void checkKey(String key) {
+        if (!ImageStorage.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+    }
+    
+    @Override
+    public String getMetricsName() {
+        return "packStorage";
+    }
+    
+    @Override
+    public Map<String, Number> getMetrics() {
+        long liveBytes = 0;
+        long totalBytes = 0;
+        for (Segment segment : segments.values()) {
+            liveBytes += segment.liveBytes.get();
+            totalBytes += segment.size;
+        }
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("segments", segments.size());
+        metrics.put("files", index.size());
+        metrics.put("liveBytes", liveBytes);
+        metrics.put("totalBytes", totalBytes);
+        metrics.put("compactions", compactions.get());
+        metrics.put("compactedBytes", compactedBytes.get());
+        return metrics;
+    }
+    
+    private record Entry(int segment, long offset, long length, long writtenAt) {
+    }
+    
+    private record Reservation(Segment segment, long position, long dataOffset, long length, long writtenAt) {
+    }
+    
+    private record Record(byte type, String key, long writtenAt, int segmentRef, long value, long dataOffset, long next) {
+    }
+    
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        volatile long size; // end of the last reserved record
+        final AtomicLong liveBytes = new AtomicLong();
+        final AtomicInteger writers = new AtomicInteger(); // puts reserved here and not yet finished
+        
+        Segment(int id, Path path, StandardOpenOption... options) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, options);
+        }
+    }
+    
+    private record PackedImage(Segment segment, Entry entry) implements StoredImage {
+        
+        @Override
+        public long length() {
+            return entry.length();
+        }
+        
+        @Override
+        public Instant lastModified() {
+            return Instant.ofEpochMilli(entry.writtenAt());
+        }
+        
+        @Override
+        public InputStream openStream() throws IOException {
+            return new MappedInputStream(segment.channel.map(FileChannel.MapMode.READ_ONLY, entry.offset(), entry.length()));
+        }
+        
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            long start = entry.offset() + position;
+            long end = start + Math.min(count, entry.length() - position);
+            while (start < end) {
+                long sent = segment.channel.transferTo(start, end - start, target);
+                if (sent <= 0) {
+                    throw new IOException("Pack segment " + segment.id + " ended early");
+                }
+                start += sent;
+            }
+        }
+    }
+    
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.datingapp.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/** Read access to one stored file. */
+public interface StoredImage {
+    
+    long length();
+    
+    Instant lastModified();
+    
+    InputStream openStream() throws IOException;
+    
+    /**
+     * Copies {@code count} bytes starting at {@code position} to the target,
+     * without passing them through the Java heap where the platform allows.
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+    
+    /**
+     * The plain file holding exactly this content and nothing else, or null.
+     * When present, the servlet container may send it with sendfile.
+     */
+    default Path file() {
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.datingapp.util;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Encoder for the <a href="https://blurha.sh">BlurHash</a> format: a short
+ * base-83 string holding the first few cosine components of an image, which
+ * clients decode into a blurred placeholder. With 4x3 components the result
+ * is 28 characters.
+ *
+ * <p>The cost grows with pixels times components, so callers should pass an
+ * already downscaled image such as a thumbnail.
+ */
+public final class Blurhash {
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    
+    private Blurhash() {
+    }
+    
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("Blurhash components must be between 1 and 9");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        
+        // Linearized once up front, every component walks all pixels
+        float[] red = new float[pixels.length];
+        float[] green = new float[pixels.length];
+        float[] blue = new float[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            red[i] = toLinear((pixels[i] >> 16) & 0xFF);
+            green[i] = toLinear((pixels[i] >> 8) & 0xFF);
+            blue[i] = toLinear(pixels[i] & 0xFF);
+        }
+        
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = component(i, j, width, height, red, green, blue);
+            }
+        }
+        
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        appendBase83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        
+        double maximumValue = 1;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            appendBase83(hash, quantisedMaximum, 1);
+        } else {
+            appendBase83(hash, 0, 1);
+        }
+        
+        double[] dc = factors[0];
+        appendBase83(hash, (toSrgb(dc[0]) << 16) | (toSrgb(dc[1]) << 8) | toSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            appendBase83(hash, quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+    
+    private static double[] component(int i, int j, int width, int height, float[] red, float[] green, float[] blue) {
+        double[] cosX = new double[width];
+        for (int x = 0; x < width; x++) {
+            cosX[x] = Math.cos(Math.PI * i * x / width);
+        }
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < height; y++) {
+            double cosY = Math.cos(Math.PI * j * y / height);
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                double basis = cosX[x] * cosY;
+                r += basis * red[row + x];
+                g += basis * green[row + x];
+                b += basis * blue[row + x];
+            }
+        }
+        double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+        return new double[] {r * scale, g * scale, b * scale};
+    }
+    
+    private static int quantiseAc(double value, double maximumValue) {
+        double scaled = Math.copySign(Math.sqrt(Math.abs(value / maximumValue)), value);
+        return (int) Math.max(0, Math.min(18, Math.floor(scaled * 9 + 9.5)));
+    }
+    
+    private static float toLinear(int srgb) {
+        float value = srgb / 255f;
+        return value <= 0.04045f ? value / 12.92f : (float) Math.pow((value + 0.055f) / 1.055f, 2.4);
+    }
+    
+    private static int toSrgb(double linear) {
+        double value = Math.max(0, Math.min(1, linear));
+        return value <= 0.0031308
+                ? (int) (value * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(value, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+    
+    private static void appendBase83(StringBuilder hash, int value, int length) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(CHARACTERS.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.datingapp.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} to {@code long} backed by two flat
+ * arrays, so neither keys nor values are boxed. Key {@code 0} is reserved as
+ * the empty marker, which is safe for database identities.
+ *
+ * <p>Not thread-safe; callers either confine it or publish immutable copies.
+ */
+public class LongLongHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+    
+    private long[] keys;
+    private long[] values;
+    private int size;
+    
+    public LongLongHashMap() {
+        this(16);
+    }
+    
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+    
+    private LongLongHashMap(LongLongHashMap other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+    
+    public LongLongHashMap copy() {
+        return new LongLongHashMap(this);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean containsKey(long key) {
+        return keys[indexOf(key)] == key;
+    }
+    
+    /** Returns the value mapped to {@code key}, or {@code defaultValue} if absent. */
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : defaultValue;
+    }
+    
+    public void put(long key, long value) {
+        checkKey(key);
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                values[index] = value;
+                resize();
+                return;
+            }
+        }
+        values[index] = value;
+    }
+    
+    public void remove(long key) {
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            return;
+        }
+        keys[index] = 0;
+        size--;
+        
+        // Shift the rest of the probe chain back so lookups don't stop early
+        int mask = keys.length - 1;
+        int next = (index + 1) & mask;
+        while (keys[next] != 0) {
+            long movedKey = keys[next];
+            long movedValue = values[next];
+            keys[next] = 0;
+            int target = indexOf(movedKey);
+            keys[target] = movedKey;
+            values[target] = movedValue;
+            next = (next + 1) & mask;
+        }
+    }
+    
+    /** Removes every entry whose value is below {@code threshold} and returns how many were removed. */
+    public int removeValuesBelow(long threshold) {
+        int removed = 0;
+        for (int i = 0; i < keys.length; ) {
+            if (keys[i] != 0 && values[i] < threshold) {
+                // The backward shift may move an unvisited entry into this slot, so look again
+                remove(keys[i]);
+                removed++;
+            } else {
+                i++;
+            }
+        }
+        return removed;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+    
+    /** Approximate heap footprint of the backing arrays in bytes. */
+    public long footprintBytes() {
+        return 2L * keys.length * Long.BYTES;
+    }
+    
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldValues.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+    
+    public static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
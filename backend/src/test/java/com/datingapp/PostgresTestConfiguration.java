@@ -0,0 +1,22 @@
+package com.datingapp;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Starts a throwaway Postgres for tests that need the real database: native
+ * upserts, row locks and partial unique indexes. Test classes importing it
+ * should also be annotated {@code @Testcontainers(disabledWithoutDocker = true)}
+ * so they are skipped where Docker is unavailable.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class PostgresTestConfiguration {
+    
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgres() {
+        return new PostgreSQLContainer<>("postgres:15-alpine");
+    }
+}
@@ -0,0 +1,159 @@
+package com.datingapp.controller;
+
+import com.datingapp.PostgresTestConfiguration;
+import com.datingapp.dto.RegisterRequest;
+import com.datingapp.security.JwtAuthenticationFilter;
+import com.datingapp.service.AuthService;
+import com.datingapp.service.PairingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements behind an authenticated {@code GET /couple/timer},
+ * the endpoint every open app polls, with {@code app.jwt.stateless-auth} off
+ * and on. Only statements prepared on the request thread are counted, so the
+ * background jobs do not skew the numbers.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class AuthenticatedRequestQueryCountTest {
+    private static final int REQUESTS = 200;
+    
+    private static final AtomicLong statements = new AtomicLong();
+    private static volatile Thread countedThread;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private PairingService pairingService;
+    
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+    
+    @Test
+    void statelessAuthenticationRunsNoQueries() throws Exception {
+        Long owner = register("query-count-owner");
+        Long partner = register("query-count-partner");
+        String code = pairingService.generatePairingCode(owner).getCode();
+        String accessToken = pairingService.confirmPairing(code, partner).getAccessToken();
+        
+        double lookup = statementsPerRequest(accessToken, false);
+        double stateless = statementsPerRequest(accessToken, true);
+        
+        System.out.printf("GET /couple/timer over %d requests: %.2f statements/request with the users lookup, "
+                + "%.2f with stateless authentication%n", REQUESTS, lookup, stateless);
+        
+        assertThat(lookup).isEqualTo(1.0);
+        assertThat(stateless).isEqualTo(0.0);
+    }
+    
+    private double statementsPerRequest(String accessToken, boolean statelessAuth) throws Exception {
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessAuth", statelessAuth);
+        try {
+            // Warm up so that lazy initialisation is not counted
+            mockMvc.perform(get("/couple/timer").header("Authorization", "Bearer " + accessToken))
+                    .andExpect(status().isOk());
+            
+            statements.set(0);
+            countedThread = Thread.currentThread();
+            for (int i = 0; i < REQUESTS; i++) {
+                mockMvc.perform(get("/couple/timer").header("Authorization", "Bearer " + accessToken))
+                        .andExpect(status().isOk());
+            }
+            countedThread = null;
+            return (double) statements.get() / REQUESTS;
+        } finally {
+            countedThread = null;
+            ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessAuth", true);
+        }
+    }
+    
+    private Long register(String username) {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setPassword("query-count-password");
+        request.setDisplayName(username);
+        request.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return authService.register(request).join().getUserId();
+    }
+    
+    @TestConfiguration
+    static class CountingConfiguration {
+        
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                            ? new CountingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+    
+    /** Counts statements created on {@link #countedThread}, whatever issues them. */
+    private static class CountingDataSource extends DelegatingDataSource {
+        
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+        
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+        
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if ((name.startsWith("prepare") || name.equals("createStatement"))
+                                && Thread.currentThread() == countedThread) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
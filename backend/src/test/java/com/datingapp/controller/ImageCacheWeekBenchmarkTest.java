@@ -0,0 +1,115 @@
+package com.datingapp.controller;
+
+import com.datingapp.security.ImageUrlSigner;
+import com.datingapp.storage.FileSystemImageStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Replays a week of slideshow use: the app lists a couple's images every hour
+ * and shows each of them. URLs are signed for an hour, so nearly every listing
+ * hands out new ones. Compares the requests and bytes served through
+ * {@link UploadController} to a client that keys its cache on the path, as
+ * the mobile app does, with one that keys it on the full signed URL.
+ */
+class ImageCacheWeekBenchmarkTest {
+    private static final int IMAGES = 30;
+    private static final int IMAGE_BYTES = 200 * 1024;
+    private static final int LISTINGS_PER_DAY = 24;
+    private static final int DAYS = 7;
+    private static final long URL_TTL_SECONDS = 3600;
+    
+    @TempDir
+    private Path uploadDir;
+    
+    @Test
+    void aWeekOfListingsFetchesEachImageOnce() throws Exception {
+        ImageUrlSigner signer = new ImageUrlSigner();
+        ReflectionTestUtils.setField(signer, "secret", "benchmark-secret");
+        ReflectionTestUtils.setField(signer, "ttlSeconds", URL_TTL_SECONDS);
+        ReflectionTestUtils.setField(signer, "granularitySeconds", URL_TTL_SECONDS);
+        ReflectionTestUtils.invokeMethod(signer, "init");
+        
+        FileSystemImageStorage storage = new FileSystemImageStorage();
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.invokeMethod(storage, "init");
+        
+        UploadController controller = new UploadController();
+        ReflectionTestUtils.setField(controller, "imageStorage", storage);
+        ReflectionTestUtils.setField(controller, "imageUrlSigner", signer);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        
+        List<String> urls = storeImages();
+        
+        // Starting now keeps every simulated URL valid when it is served
+        long start = System.currentTimeMillis() / 1000;
+        Map<String, byte[]> byPath = new HashMap<>();
+        Map<String, byte[]> byUrl = new HashMap<>();
+        long pathRequests = 0;
+        long urlRequests = 0;
+        for (int listing = 0; listing < DAYS * LISTINGS_PER_DAY; listing++) {
+            long now = start + listing * (24 * 3600L / LISTINGS_PER_DAY);
+            for (String url : urls) {
+                String signed = signer.sign(url, now);
+                if (!byPath.containsKey(url)) {
+                    byPath.put(url, fetch(mockMvc, signed));
+                    pathRequests++;
+                }
+                if (!byUrl.containsKey(signed)) {
+                    byUrl.put(signed, fetch(mockMvc, signed));
+                    urlRequests++;
+                }
+            }
+        }
+        long pathBytes = pathRequests * IMAGE_BYTES;
+        long urlBytes = urlRequests * IMAGE_BYTES;
+        
+        System.out.printf("A week of %d listings of %d images: %d requests and %.1f MB keyed by path, "
+                        + "%d requests and %.1f MB keyed by signed URL; saved %d requests and %.1f MB (%.1f%%)%n",
+                DAYS * LISTINGS_PER_DAY, IMAGES, pathRequests, pathBytes / 1e6, urlRequests, urlBytes / 1e6,
+                urlRequests - pathRequests, (urlBytes - pathBytes) / 1e6, 100.0 * (urlBytes - pathBytes) / urlBytes);
+        
+        assertThat(pathRequests).isEqualTo(IMAGES);
+        // Hourly listings against hourly expiries: the signed URL changes on almost every listing
+        assertThat(urlRequests).isGreaterThan((long) IMAGES * DAYS * LISTINGS_PER_DAY / 2);
+    }
+    
+    private static byte[] fetch(MockMvc mockMvc, String signedUrl) throws Exception {
+        byte[] body = mockMvc.perform(get(signedUrl))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(body).hasSize(IMAGE_BYTES);
+        return body;
+    }
+    
+    private List<String> storeImages() throws Exception {
+        Random random = new Random(42);
+        List<String> urls = new ArrayList<>(IMAGES);
+        for (int i = 0; i < IMAGES; i++) {
+            byte[] content = new byte[IMAGE_BYTES];
+            random.nextBytes(content);
+            byte[] name = new byte[32];
+            random.nextBytes(name);
+            String filename = HexFormat.of().formatHex(name) + ".jpg";
+            Files.write(uploadDir.resolve(filename), content);
+            urls.add("/uploads/" + filename);
+        }
+        return urls;
+    }
+}
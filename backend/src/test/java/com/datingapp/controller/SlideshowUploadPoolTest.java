@@ -0,0 +1,201 @@
+package com.datingapp.controller;
+
+import com.datingapp.PostgresTestConfiguration;
+import com.datingapp.entity.Couple;
+import com.datingapp.entity.User;
+import com.datingapp.repository.CoupleRepository;
+import com.datingapp.repository.SlideshowImageRepository;
+import com.datingapp.repository.UserRepository;
+import com.datingapp.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams 100 throttled uploads at once against a two-connection pool and
+ * checks that they all succeed and that other requests needing the database
+ * keep being served while the bodies trickle in. Uploads only borrow a
+ * connection for their short queries, so a slow client cannot pin one; if
+ * they held it for the whole body, 100 uploads of several seconds each would
+ * queue far past the pool's connection timeout.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=5000"
+})
+@ActiveProfiles("test")
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class SlideshowUploadPoolTest {
+    private static final int UPLOADS = 100;
+    private static final int CHUNKS = 16;
+    // Each client gets its own pace, so bodies take between 1.6 and 3.2 s to arrive
+    private static final long MIN_CHUNK_PAUSE_MS = 100;
+    private static final long MAX_CHUNK_PAUSE_MS = 200;
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private JwtUtil jwtUtil;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CoupleRepository coupleRepository;
+    
+    @Autowired
+    private SlideshowImageRepository slideshowImageRepository;
+    
+    @Test
+    void slowUploadsDoNotStarveOtherRequests() throws Exception {
+        List<User> uploaders = createCouples("uploader", UPLOADS / 2);
+        User reader = createCouples("reader", 1).get(0);
+        String readerToken = jwtUtil.generateAccessToken(reader.getId(), reader.getUsername());
+        
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Random random = new Random(42);
+        List<CompletableFuture<HttpResponse<String>>> uploads = new ArrayList<>();
+        long began = System.nanoTime();
+        for (User uploader : uploaders) {
+            byte[] image = randomPng(random);
+            long pauseMs = MIN_CHUNK_PAUSE_MS + random.nextInt((int) (MAX_CHUNK_PAUSE_MS - MIN_CHUNK_PAUSE_MS));
+            HttpRequest request = HttpRequest.newBuilder(uri("/slideshow/images"))
+                    .header("Authorization", "Bearer " + jwtUtil.generateAccessToken(uploader.getId(), uploader.getUsername()))
+                    .header("Content-Type", "image/png")
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ThrottledInputStream(image, pauseMs)))
+                    .build();
+            uploads.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        
+        // Read the reader's slideshow over and over while the upload bodies are still arriving
+        List<Long> latencies = new ArrayList<>();
+        List<Integer> statuses = new ArrayList<>();
+        CompletableFuture<Void> allUploads = CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0]));
+        while (!allUploads.isDone()) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/slideshow"))
+                    .header("Authorization", "Bearer " + readerToken)
+                    .timeout(Duration.ofSeconds(10))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            latencies.add(System.nanoTime() - start);
+            statuses.add(response.statusCode());
+        }
+        long elapsed = System.nanoTime() - began;
+        
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d throttled uploads in %.1f s over 2 connections; %d reads meanwhile, p50 %.1f ms, max %.1f ms%n",
+                UPLOADS, elapsed / 1e9, sorted.length, sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6);
+        
+        for (CompletableFuture<HttpResponse<String>> upload : uploads) {
+            assertThat(upload.join().statusCode()).isEqualTo(200);
+        }
+        assertThat(slideshowImageRepository.count()).isEqualTo(UPLOADS);
+        // Serialized over two pinned connections the uploads would take well over a minute
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(15).toNanos());
+        assertThat(sorted.length).isGreaterThan(10);
+        assertThat(statuses).containsOnly(200);
+        // Reads queue briefly behind the uploads' inserts, but never for anything like a whole upload
+        assertThat(sorted[sorted.length / 2]).isLessThan(Duration.ofMillis(500).toNanos());
+    }
+    
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api" + path);
+    }
+    
+    // Returns both members of each couple
+    private List<User> createCouples(String prefix, int count) {
+        List<User> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User first = createUser(prefix + "-" + i + "a");
+            User second = createUser(prefix + "-" + i + "b");
+            Couple couple = new Couple();
+            couple.setUser1Id(first.getId());
+            couple.setUser2Id(second.getId());
+            coupleRepository.save(couple);
+            members.add(first);
+            members.add(second);
+        }
+        return members;
+    }
+    
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPasswordHash("not-used");
+        user.setDisplayName(username);
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return userRepository.save(user);
+    }
+    
+    private static byte[] randomPng(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(48, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+    
+    /** Hands out the body in {@value #CHUNKS} pieces with a pause before each, like a client on a bad link. */
+    private static final class ThrottledInputStream extends InputStream {
+        private final ByteArrayInputStream body;
+        private final int chunkBytes;
+        private final long pauseMs;
+        
+        ThrottledInputStream(byte[] body, long pauseMs) {
+            this.body = new ByteArrayInputStream(body);
+            this.chunkBytes = (body.length + CHUNKS - 1) / CHUNKS;
+            this.pauseMs = pauseMs;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (body.available() == 0) {
+                return -1;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return body.read(buffer, offset, Math.min(length, chunkBytes));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.datingapp.service;
+
+import com.datingapp.push.PushMessage;
+import com.datingapp.push.StubPushProvider;
+import com.datingapp.repository.NotificationDeadLetterRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures dispatch throughput for growing worker counts against the stub
+ * provider's simulated per-batch latency. Workers spend their time waiting on
+ * the provider, so throughput should grow close to linearly with their number.
+ */
+class NotificationDispatcherScalingTest {
+    private static final int MESSAGES = 1_000;
+    private static final int BATCH_SIZE = 10;
+    private static final long PROVIDER_LATENCY_MS = 20;
+    
+    @Test
+    void throughputScalesWithWorkerCount() throws Exception {
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int workers : new int[] {1, 2, 4, 8}) {
+            throughput.put(workers, measure(workers));
+            System.out.printf("%d workers: %.0f notifications/s%n", workers, throughput.get(workers));
+        }
+        
+        // Ideal scaling is 8x; leave room for scheduling noise on small machines
+        assertThat(throughput.get(2)).isGreaterThan(throughput.get(1) * 1.6);
+        assertThat(throughput.get(8)).isGreaterThan(throughput.get(1) * 5);
+    }
+    
+    private double measure(int workers) throws Exception {
+        StubPushProvider provider = new StubPushProvider();
+        ReflectionTestUtils.setField(provider, "latencyMs", PROVIDER_LATENCY_MS);
+        
+        NotificationDispatcher dispatcher = new NotificationDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "pushProvider", provider);
+        ReflectionTestUtils.setField(dispatcher, "deadLetterRepository", Mockito.mock(NotificationDeadLetterRepository.class));
+        ReflectionTestUtils.setField(dispatcher, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", MESSAGES);
+        ReflectionTestUtils.setField(dispatcher, "workers", workers);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 1);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 1L);
+        ReflectionTestUtils.setField(dispatcher, "retryAfterSeconds", 1L);
+        dispatcher.start();
+        
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                dispatcher.enqueue(new PushMessage((long) i, null, "❤️", Map.of()));
+            }
+            while (dispatcher.getMetrics().get("delivered").longValue() < MESSAGES) {
+                Thread.sleep(1);
+            }
+            return MESSAGES / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            dispatcher.stop();
+        }
+    }
+}
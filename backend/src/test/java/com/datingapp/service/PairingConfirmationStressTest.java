@@ -0,0 +1,125 @@
+package com.datingapp.service;
+
+import com.datingapp.PostgresTestConfiguration;
+import com.datingapp.entity.Couple;
+import com.datingapp.entity.User;
+import com.datingapp.repository.CoupleRepository;
+import com.datingapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires 1,000 concurrent confirmations at a handful of hot pairing codes and
+ * checks that every code pairs exactly one claimant, nobody ends up in two
+ * couples, and everyone else is turned away. Prints the latency distribution.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class PairingConfirmationStressTest {
+    private static final int HOT_CODES = 10;
+    private static final int CONFIRMATIONS = 1_000;
+    private static final int THREADS = 64;
+    
+    @Autowired
+    private PairingService pairingService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CoupleRepository coupleRepository;
+    
+    @Test
+    void everyHotCodePairsExactlyOneClaimant() throws Exception {
+        List<Long> owners = createUsers("owner", HOT_CODES);
+        List<Long> claimants = createUsers("claimant", CONFIRMATIONS);
+        List<String> codes = new ArrayList<>();
+        for (Long owner : owners) {
+            codes.add(pairingService.generatePairingCode(owner).getCode());
+        }
+        assertThat(new HashSet<>(codes)).hasSize(HOT_CODES);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger paired = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long[] latencies = new long[CONFIRMATIONS];
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < CONFIRMATIONS; i++) {
+            int index = i;
+            tasks.add(pool.submit(() -> {
+                start.await();
+                long began = System.nanoTime();
+                try {
+                    pairingService.confirmPairing(codes.get(index % HOT_CODES), claimants.get(index));
+                    paired.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                } finally {
+                    latencies[index] = System.nanoTime() - began;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        
+        Arrays.sort(latencies);
+        System.out.printf("%d confirmations on %d codes: %d paired, %d rejected; latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                CONFIRMATIONS, HOT_CODES, paired.get(), rejected.get(),
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[CONFIRMATIONS - 1] / 1e6);
+        
+        assertThat(paired.get()).isEqualTo(HOT_CODES);
+        assertThat(rejected.get()).isEqualTo(CONFIRMATIONS - HOT_CODES);
+        
+        Set<Long> pairedUsers = new HashSet<>();
+        Set<Long> pairedOwners = new HashSet<>();
+        for (Couple couple : coupleRepository.findAll()) {
+            assertThat(pairedUsers.add(couple.getUser1Id())).isTrue();
+            assertThat(pairedUsers.add(couple.getUser2Id())).isTrue();
+            pairedOwners.add(couple.getUser1Id());
+        }
+        assertThat(pairedOwners).containsExactlyInAnyOrderElementsOf(owners);
+    }
+    
+    private List<Long> createUsers(String prefix, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername(prefix + "-" + i);
+            user.setPasswordHash("not-used");
+            user.setDisplayName(prefix + " " + i);
+            user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+    
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)] / 1e6;
+    }
+}
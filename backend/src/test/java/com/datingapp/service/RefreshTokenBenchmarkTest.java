@@ -0,0 +1,79 @@
+package com.datingapp.service;
+
+import com.datingapp.PostgresTestConfiguration;
+import com.datingapp.dto.AuthResponse;
+import com.datingapp.dto.LoginRequest;
+import com.datingapp.dto.RegisterRequest;
+import com.datingapp.dto.TokenRefreshResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares a password login with a token refresh end to end through
+ * {@link AuthService}, against a real database. A refresh must stay orders of
+ * magnitude cheaper, since clients now refresh instead of logging in again.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class RefreshTokenBenchmarkTest {
+    private static final int WARMUP_LOGINS = 10;
+    private static final int WARMUP_REFRESHES = 2_000;
+    private static final int LOGINS = 50;
+    private static final int REFRESHES = 2_000;
+    private static final String PASSWORD = "benchmark-password";
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Test
+    void refreshIsOrdersOfMagnitudeCheaperThanLogin() {
+        RegisterRequest register = new RegisterRequest();
+        register.setUsername("refresh-benchmark");
+        register.setPassword(PASSWORD);
+        register.setDisplayName("Benchmark");
+        register.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        String refreshToken = authService.register(register).join().getRefreshToken();
+        
+        LoginRequest login = new LoginRequest();
+        login.setUsername("refresh-benchmark");
+        login.setPassword(PASSWORD);
+        
+        for (int i = 0; i < WARMUP_LOGINS; i++) {
+            authService.login(login).join();
+        }
+        for (int i = 0; i < WARMUP_REFRESHES; i++) {
+            refreshToken = authService.refresh(refreshToken).getRefreshToken();
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < LOGINS; i++) {
+            AuthResponse response = authService.login(login).join();
+            assertThat(response.getAccessToken()).isNotBlank();
+        }
+        double loginMicros = (System.nanoTime() - start) / 1_000.0 / LOGINS;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < REFRESHES; i++) {
+            TokenRefreshResponse response = authService.refresh(refreshToken);
+            refreshToken = response.getRefreshToken();
+        }
+        double refreshMicros = (System.nanoTime() - start) / 1_000.0 / REFRESHES;
+        
+        double ratio = loginMicros / refreshMicros;
+        System.out.printf("login: %.0f us/op, refresh: %.0f us/op, refresh is %.0fx cheaper%n",
+                loginMicros, refreshMicros, ratio);
+        
+        // BCrypt at strength 10 alone is tens of milliseconds; a refresh is one HMAC and one UPDATE
+        assertThat(ratio).isGreaterThan(20);
+    }
+}
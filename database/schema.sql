@@ -40,13 +40,34 @@ CREATE TABLE IF NOT EXISTS pairing_codes (
 );
 
 CREATE INDEX idx_code ON pairing_codes(code);
+-- At most one unused row per code, across all instances
+CREATE UNIQUE INDEX uq_pairing_code_unused ON pairing_codes(code) WHERE used = false;
 CREATE INDEX idx_owner ON pairing_codes(owner_user_id);
+CREATE INDEX idx_expires ON pairing_codes(expires_at);
+
+-- Stored image files, one per distinct content and shared by slideshow images
+CREATE TABLE IF NOT EXISTS image_blobs (
+    digest VARCHAR(64) PRIMARY KEY,
+    filename VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL,
+    stored BOOLEAN NOT NULL DEFAULT TRUE, -- false until the first upload's file is in place
+    released_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE image_blobs ADD COLUMN IF NOT EXISTS stored BOOLEAN NOT NULL DEFAULT TRUE; -- databases created before the column
+
+CREATE INDEX idx_blob_released ON image_blobs(released_at);
 
 -- Slideshow images table
 CREATE TABLE IF NOT EXISTS slideshow_images (
     id BIGSERIAL PRIMARY KEY,
     couple_id BIGINT NOT NULL,
     image_url VARCHAR(500) NOT NULL,
+    thumbnail_url VARCHAR(500),
+    display_url VARCHAR(500),
+    blurhash VARCHAR(64),
     order_index INTEGER NOT NULL,
     uploaded_by_user_id BIGINT NOT NULL,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -70,3 +91,65 @@ CREATE TABLE IF NOT EXISTS quick_messages (
 
 CREATE INDEX idx_couple_message ON quick_messages(couple_id);
 
+-- Sent messages table (history of notifications between partners)
+CREATE TABLE IF NOT EXISTS sent_messages (
+    id BIGSERIAL PRIMARY KEY,
+    couple_id BIGINT NOT NULL,
+    sender_user_id BIGINT NOT NULL,
+    content VARCHAR(1000) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_couple_sent FOREIGN KEY (couple_id) REFERENCES couples(id) ON DELETE CASCADE,
+    CONSTRAINT fk_sender_sent FOREIGN KEY (sender_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Keyset pagination over a couple's history
+CREATE INDEX idx_sent_couple_created ON sent_messages(couple_id, created_at, id);
+
+-- Revoked tokens table (deny-list for stateless authentication)
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT,
+    token_id VARCHAR(36),
+    revoked_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_revoked_expires ON revoked_tokens(expires_at);
+CREATE INDEX idx_revoked_at ON revoked_tokens(revoked_at);
+
+-- Refresh token families table (rotation state, advanced by one conditional UPDATE per refresh)
+CREATE TABLE IF NOT EXISTS refresh_token_families (
+    family_id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    generation INTEGER NOT NULL,
+    revoked BOOLEAN NOT NULL DEFAULT FALSE,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_user_refresh FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_refresh_family_expires ON refresh_token_families(expires_at);
+
+-- Push registration tokens, one row per app installation
+CREATE TABLE IF NOT EXISTS device_tokens (
+    token VARCHAR(512) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_user_device FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_device_user ON device_tokens(user_id);
+
+-- Push notifications that could not be delivered
+CREATE TABLE IF NOT EXISTS notification_dead_letters (
+    id BIGSERIAL PRIMARY KEY,
+    recipient_user_id BIGINT NOT NULL,
+    title VARCHAR(255),
+    body VARCHAR(1000) NOT NULL,
+    data TEXT,
+    provider VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL,
+    reason VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_dead_letter_recipient ON notification_dead_letters(recipient_user_id);
@@ -0,0 +1,41 @@
+import React, {useEffect, useState} from 'react';
+import {StyleProp} from 'react-native';
+import FastImage, {ImageStyle, ResizeMode} from 'react-native-fast-image';
+import {cacheKeyFor, replaceCacheKey} from '../services/imageCache';
+
+interface CachedImageProps {
+  uri?: string | null;
+  style?: StyleProp<ImageStyle>;
+  resizeMode?: ResizeMode;
+}
+
+// Draws a slideshow image from the disk cache by its content path, so a new
+// signature on the same image does not download it again
+const CachedImage = ({uri, style, resizeMode}: CachedImageProps) => {
+  const [source, setSource] = useState(() => (uri ? cacheKeyFor(uri) : null));
+
+  useEffect(() => {
+    setSource(uri ? cacheKeyFor(uri) : null);
+  }, [uri]);
+
+  if (!uri || !source) {
+    return null;
+  }
+
+  return (
+    <FastImage
+      source={{uri: source, cache: FastImage.cacheControl.immutable}}
+      style={style}
+      resizeMode={resizeMode}
+      onError={() => {
+        // Evicted from the cache, and the URL it was stored under no longer verifies
+        if (source !== uri) {
+          replaceCacheKey(uri);
+          setSource(uri);
+        }
+      }}
+    />
+  );
+};
+
+export default CachedImage;
@@ -45,6 +45,17 @@ const PairingScreen = () => {
     }
   };
 
+  const waitForPartner = async () => {
+    try {
+      const result = await pairingApi.waitForPartner();
+      if (result.paired || result.isPaired) {
+        await fetchStatus();
+      }
+    } catch (error) {
+      console.error("Error waiting for partner:", error);
+    }
+  };
+
   const handleGenerateCode = async () => {
     setGenerating(true);
     try {
@@ -54,6 +65,7 @@ const PairingScreen = () => {
         "Pairing Code",
         `Your code: ${response.code}\n\nShare this with your partner!`,
       );
+      waitForPartner();
     } catch (error: any) {
       Alert.alert(
         "Error",
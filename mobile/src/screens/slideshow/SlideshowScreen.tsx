@@ -13,6 +13,8 @@ import {
 import {launchImageLibrary, ImagePickerResponse} from 'react-native-image-picker';
 import {useSlideshowStore} from '../../store/slideshowStore';
 import {useCoupleStore} from '../../store/coupleStore';
+import {blurhashToDataUri} from '../../utils/blurhash';
+import CachedImage from '../../components/CachedImage';
 
 const SlideshowScreen = () => {
   const {status} = useCoupleStore();
@@ -51,7 +53,7 @@ const SlideshowScreen = () => {
       async (response: ImagePickerResponse) => {
         if (response.assets && response.assets[0]) {
           try {
-            await uploadImage(response.assets[0].uri!);
+            await uploadImage(response.assets[0].uri!, response.assets[0].type);
             Alert.alert('Success', 'Image uploaded successfully');
           } catch (error: any) {
             Alert.alert('Error', error.response?.data?.error || 'Failed to upload image');
@@ -106,7 +108,19 @@ const SlideshowScreen = () => {
         setCurrentIndex(index);
         setShowFullscreen(true);
       }}>
-      <Image source={{uri: item.imageUrl}} style={styles.thumbnail} />
+      <View style={styles.thumbnail}>
+        {item.blurhash && (
+          <Image
+            source={{uri: blurhashToDataUri(item.blurhash)}}
+            style={styles.layer}
+            resizeMode="stretch"
+          />
+        )}
+        <CachedImage
+          uri={item.thumbnailUrl ?? item.imageUrl}
+          style={styles.layer}
+        />
+      </View>
       <TouchableOpacity
         style={styles.deleteButton}
         onPress={() => handleDelete(item.id)}>
@@ -118,11 +132,20 @@ const SlideshowScreen = () => {
   return (
     <View style={styles.container}>
       <View style={styles.slideshowContainer}>
-        <Image
-          source={{uri: images[currentIndex]?.imageUrl}}
-          style={styles.mainImage}
-          resizeMode="cover"
-        />
+        <View style={styles.mainImage}>
+          {images[currentIndex]?.blurhash && (
+            <Image
+              source={{uri: blurhashToDataUri(images[currentIndex].blurhash)}}
+              style={styles.layer}
+              resizeMode="stretch"
+            />
+          )}
+          <CachedImage
+            uri={images[currentIndex]?.displayUrl ?? images[currentIndex]?.imageUrl}
+            style={styles.layer}
+            resizeMode="cover"
+          />
+        </View>
       </View>
 
       <View style={styles.controlsContainer}>
@@ -148,8 +171,11 @@ const SlideshowScreen = () => {
             onPress={() => setShowFullscreen(false)}>
             <Text style={styles.closeButtonText}>×</Text>
           </TouchableOpacity>
-          <Image
-            source={{uri: images[currentIndex]?.imageUrl}}
+          <CachedImage
+            uri={
+              images[currentIndex]?.displayUrl ??
+              images[currentIndex]?.imageUrl
+            }
             style={styles.fullscreenImage}
             resizeMode="contain"
           />
@@ -204,6 +230,10 @@ const styles = StyleSheet.create({
     width: 80,
     height: 80,
     borderRadius: 8,
+    overflow: 'hidden',
+  },
+  layer: {
+    ...StyleSheet.absoluteFillObject,
   },
   deleteButton: {
     position: 'absolute',
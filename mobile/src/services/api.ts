@@ -6,6 +6,7 @@ import {
   TimerData,
   SlideshowImage,
   QuickMessage,
+  MessageHistory,
   PairingCode,
 } from '../types';
 
@@ -34,6 +35,36 @@ api.interceptors.request.use(
   }
 );
 
+// Shared by every request that fails while a refresh is running, since the
+// server rotates refresh tokens and a second concurrent refresh would be rejected
+let refreshInFlight: Promise<string | null> | null = null;
+
+const refreshAccessToken = (): Promise<string | null> => {
+  if (!refreshInFlight) {
+    refreshInFlight = (async () => {
+      const refreshToken = await AsyncStorage.getItem('refreshToken');
+      if (!refreshToken) {
+        return null;
+      }
+      try {
+        // Plain axios so a failed refresh doesn't re-enter this interceptor
+        const response = await axios.post(`${API_BASE_URL}/auth/refresh`, {
+          refreshToken,
+        });
+        await AsyncStorage.setItem('accessToken', response.data.accessToken);
+        await AsyncStorage.setItem('refreshToken', response.data.refreshToken);
+        return response.data.accessToken as string;
+      } catch (refreshError) {
+        await AsyncStorage.multiRemove(['accessToken', 'refreshToken', 'user']);
+        return null;
+      }
+    })().finally(() => {
+      refreshInFlight = null;
+    });
+  }
+  return refreshInFlight;
+};
+
 // Response interceptor for token refresh
 api.interceptors.response.use(
   (response) => response,
@@ -41,16 +72,11 @@ api.interceptors.response.use(
     const originalRequest = error.config;
     if (error.response?.status === 401 && !originalRequest._retry) {
       originalRequest._retry = true;
-      // Try to refresh token
-      const refreshToken = await AsyncStorage.getItem('refreshToken');
-      if (refreshToken) {
-        try {
-          // In a real app, you'd call a refresh endpoint
-          // For now, we'll just clear storage and redirect to login
-          await AsyncStorage.multiRemove(['accessToken', 'refreshToken', 'user']);
-        } catch (refreshError) {
-          await AsyncStorage.multiRemove(['accessToken', 'refreshToken', 'user']);
-        }
+      // Requests queue behind the one refresh and are replayed with its token
+      const accessToken = await refreshAccessToken();
+      if (accessToken) {
+        originalRequest.headers.Authorization = `Bearer ${accessToken}`;
+        return api(originalRequest);
       }
     }
     return Promise.reject(error);
@@ -82,14 +108,33 @@ export const authApi = {
   },
 };
 
+export const deviceApi = {
+  register: async (token: string): Promise<void> => {
+    await api.post('/devices', { token });
+  },
+
+  unregister: async (token: string): Promise<void> => {
+    await api.delete('/devices', { data: { token } });
+  },
+};
+
 export const pairingApi = {
   generateCode: async (): Promise<PairingCode> => {
     const response = await api.post('/pair/code');
     return response.data;
   },
 
+  // Held open by the server until a partner enters our code or it expires
+  waitForPartner: async (): Promise<any> => {
+    const response = await api.get('/pair/wait');
+    return response.data;
+  },
+
   confirmPairing: async (code: string): Promise<void> => {
-    await api.post('/pair/confirm', { code });
+    const response = await api.post('/pair/confirm', { code });
+    // Re-issued tokens carry the couple context, so later calls skip the lookup
+    await AsyncStorage.setItem('accessToken', response.data.accessToken);
+    await AsyncStorage.setItem('refreshToken', response.data.refreshToken);
   },
 };
 
@@ -106,17 +151,14 @@ export const coupleApi = {
 };
 
 export const slideshowApi = {
-  uploadImage: async (uri: string): Promise<SlideshowImage> => {
-    const formData = new FormData();
-    formData.append('file', {
-      uri,
-      type: 'image/jpeg',
-      name: 'photo.jpg',
-    } as any);
-
-    const response = await api.post('/slideshow/upload', formData, {
+  uploadImage: async (uri: string, type = 'image/jpeg'): Promise<SlideshowImage> => {
+    // Sent as the raw body so the server can stream it straight to storage
+    const file = await fetch(uri);
+    const blob = await file.blob();
+
+    const response = await api.post('/slideshow/images', blob, {
       headers: {
-        'Content-Type': 'multipart/form-data',
+        'Content-Type': type,
       },
     });
     return response.data;
@@ -131,6 +173,18 @@ export const slideshowApi = {
     await api.put('/slideshow/reorder', { imageIds });
   },
 
+  moveImage: async (
+    id: number,
+    afterImageId: number | null,
+    beforeImageId: number | null,
+  ): Promise<SlideshowImage> => {
+    const response = await api.put(`/slideshow/${id}/position`, {
+      afterImageId,
+      beforeImageId,
+    });
+    return response.data;
+  },
+
   deleteImage: async (id: number): Promise<void> => {
     await api.delete(`/slideshow/${id}`);
   },
@@ -154,6 +208,13 @@ export const quickMessageApi = {
   sendNotification: async (message: string): Promise<void> => {
     await api.post('/notify/quick', { message });
   },
+
+  getHistory: async (
+    params: { before?: string; since?: string; limit?: number } = {},
+  ): Promise<MessageHistory> => {
+    const response = await api.get('/notify/history', { params });
+    return response.data;
+  },
 };
 
 export default api;
@@ -0,0 +1,76 @@
+import AsyncStorage from '@react-native-async-storage/async-storage';
+
+// Signed image URLs change every hour, but an image's file name is the SHA-256
+// of its content, so the path alone identifies it. The first signed URL seen
+// for a path stays the key the native image cache stores the image under, and
+// later listings draw it from disk without a request, even once that URL's
+// signature has expired.
+const STORAGE_KEY = 'imageCacheKeys';
+const SAVE_DELAY_MS = 1000;
+
+const cacheKeys = new Map<string, string>();
+let loading: Promise<void> | null = null;
+let saveTimer: ReturnType<typeof setTimeout> | null = null;
+
+const pathOf = (url: string): string => url.split('?')[0];
+
+const save = () => {
+  if (saveTimer) {
+    return;
+  }
+  saveTimer = setTimeout(() => {
+    saveTimer = null;
+    AsyncStorage.setItem(STORAGE_KEY, JSON.stringify(Object.fromEntries(cacheKeys))).catch(() => {});
+  }, SAVE_DELAY_MS);
+};
+
+// Restores the keys of images cached in earlier sessions
+export const loadImageCacheKeys = (): Promise<void> => {
+  if (!loading) {
+    loading = AsyncStorage.getItem(STORAGE_KEY)
+      .then((json) => {
+        if (json) {
+          for (const [path, url] of Object.entries<string>(JSON.parse(json))) {
+            if (!cacheKeys.has(path)) {
+              cacheKeys.set(path, url);
+            }
+          }
+        }
+      })
+      .catch(() => {});
+  }
+  return loading;
+};
+
+// Returns the URL the image is cached under, adopting this one for a new image
+export const cacheKeyFor = (url: string): string => {
+  const path = pathOf(url);
+  const key = cacheKeys.get(path);
+  if (key) {
+    return key;
+  }
+  cacheKeys.set(path, url);
+  save();
+  return url;
+};
+
+// The cached copy is gone and the old URL may have expired, so the image is fetched again under this one
+export const replaceCacheKey = (url: string): void => {
+  cacheKeys.set(pathOf(url), url);
+  save();
+};
+
+// Forgets images that are no longer in the slideshow
+export const retainCacheKeys = (urls: string[]): void => {
+  const paths = new Set(urls.map(pathOf));
+  let changed = false;
+  for (const path of [...cacheKeys.keys()]) {
+    if (!paths.has(path)) {
+      cacheKeys.delete(path);
+      changed = true;
+    }
+  }
+  if (changed) {
+    save();
+  }
+};
@@ -0,0 +1,33 @@
+import messaging from '@react-native-firebase/messaging';
+import {deviceApi} from './api';
+
+let unsubscribeTokenRefresh: (() => void) | null = null;
+
+// Registers this installation's FCM token so the server can push to it, and
+// keeps the registration current when Firebase rotates the token
+export const registerForPush = async (): Promise<void> => {
+  try {
+    await messaging().requestPermission();
+    const token = await messaging().getToken();
+    await deviceApi.register(token);
+
+    unsubscribeTokenRefresh?.();
+    unsubscribeTokenRefresh = messaging().onTokenRefresh((refreshed) => {
+      deviceApi.register(refreshed).catch(() => {});
+    });
+  } catch (error) {
+    // Push is optional; the event stream still delivers while the app is open
+  }
+};
+
+// Called before the session is cleared, so the request is still authenticated
+export const unregisterForPush = async (): Promise<void> => {
+  unsubscribeTokenRefresh?.();
+  unsubscribeTokenRefresh = null;
+  try {
+    const token = await messaging().getToken();
+    await deviceApi.unregister(token);
+  } catch (error) {
+    // Best effort; a stale token is removed once FCM reports it unregistered
+  }
+};
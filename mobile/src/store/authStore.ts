@@ -2,6 +2,7 @@ import {create} from 'zustand';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import {AuthResponse} from '../types';
 import {authApi} from '../services/api';
+import {registerForPush, unregisterForPush} from '../services/push';
 
 interface AuthState {
   isAuthenticated: boolean;
@@ -30,6 +31,7 @@ export const useAuthStore = create<AuthState>((set) => ({
       await AsyncStorage.setItem('refreshToken', response.refreshToken);
       await AsyncStorage.setItem('user', JSON.stringify(response));
       set({isAuthenticated: true, user: response});
+      registerForPush();
     } catch (error) {
       throw error;
     }
@@ -52,12 +54,14 @@ export const useAuthStore = create<AuthState>((set) => ({
       await AsyncStorage.setItem('refreshToken', response.refreshToken);
       await AsyncStorage.setItem('user', JSON.stringify(response));
       set({isAuthenticated: true, user: response});
+      registerForPush();
     } catch (error) {
       throw error;
     }
   },
 
   logout: async () => {
+    await unregisterForPush();
     await AsyncStorage.multiRemove(['accessToken', 'refreshToken', 'user']);
     set({isAuthenticated: false, user: null});
   },
@@ -69,6 +73,7 @@ export const useAuthStore = create<AuthState>((set) => ({
       if (userStr && token) {
         const user = JSON.parse(userStr);
         set({isAuthenticated: true, user, isLoading: false});
+        registerForPush();
       } else {
         set({isAuthenticated: false, user: null, isLoading: false});
       }
@@ -1,13 +1,15 @@
 import {create} from 'zustand';
 import {SlideshowImage} from '../types';
 import {slideshowApi} from '../services/api';
+import {loadImageCacheKeys, retainCacheKeys} from '../services/imageCache';
 
 interface SlideshowState {
   images: SlideshowImage[];
   isLoading: boolean;
   fetchImages: () => Promise<void>;
-  uploadImage: (uri: string) => Promise<void>;
+  uploadImage: (uri: string, type?: string) => Promise<void>;
   reorderImages: (imageIds: number[]) => Promise<void>;
+  moveImage: (id: number, toIndex: number) => Promise<void>;
   deleteImage: (id: number) => Promise<void>;
 }
 
@@ -18,7 +20,17 @@ export const useSlideshowStore = create<SlideshowState>((set) => ({
   fetchImages: async () => {
     try {
       set({isLoading: true});
-      const images = await slideshowApi.getSlideshow();
+      const [images] = await Promise.all([
+        slideshowApi.getSlideshow(),
+        loadImageCacheKeys(),
+      ]);
+      retainCacheKeys(
+        images.flatMap((img) =>
+          [img.imageUrl, img.thumbnailUrl, img.displayUrl].filter(
+            (url): url is string => !!url,
+          ),
+        ),
+      );
       set({images, isLoading: false});
     } catch (error) {
       set({isLoading: false});
@@ -26,11 +38,12 @@ export const useSlideshowStore = create<SlideshowState>((set) => ({
     }
   },
 
-  uploadImage: async (uri: string) => {
+  uploadImage: async (uri: string, type?: string) => {
     try {
-      const image = await slideshowApi.uploadImage(uri);
+      const image = await slideshowApi.uploadImage(uri, type);
+      // New images always go last; local order keys may be stale after a move
       set((state) => ({
-        images: [...state.images, image].sort((a, b) => a.orderIndex - b.orderIndex),
+        images: [...state.images, image],
       }));
     } catch (error) {
       throw error;
@@ -46,6 +59,32 @@ export const useSlideshowStore = create<SlideshowState>((set) => ({
     }
   },
 
+  moveImage: async (id: number, toIndex: number) => {
+    try {
+      const others = useSlideshowStore
+        .getState()
+        .images.filter((img) => img.id !== id);
+      const after = others[toIndex - 1];
+      const before = others[toIndex];
+      const moved = await slideshowApi.moveImage(
+        id,
+        after ? after.id : null,
+        before ? before.id : null,
+      );
+      set((state) => {
+        const rest = state.images.filter((img) => img.id !== id);
+        rest.splice(Math.min(toIndex, rest.length), 0, moved);
+        return {images: rest};
+      });
+    } catch (error: any) {
+      // The list was stale; reload it so the next drag uses current neighbours
+      if (error.response?.status === 409) {
+        await useSlideshowStore.getState().fetchImages();
+      }
+      throw error;
+    }
+  },
+
   deleteImage: async (id: number) => {
     try {
       await slideshowApi.deleteImage(id);
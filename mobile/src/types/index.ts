@@ -29,6 +29,9 @@ export interface TimerData {
 export interface SlideshowImage {
   id: number;
   imageUrl: string;
+  thumbnailUrl?: string | null;
+  displayUrl?: string | null;
+  blurhash?: string | null;
   orderIndex: number;
   uploadedByUserId: number;
   createdAt: string;
@@ -41,6 +44,20 @@ export interface QuickMessage {
   createdAt: string;
 }
 
+export interface SentMessage {
+  id: number;
+  content: string;
+  senderUserId: number;
+  createdAt: string;
+}
+
+export interface MessageHistory {
+  messages: SentMessage[];
+  olderCursor: string | null;
+  newerCursor: string | null;
+  hasMore: boolean;
+}
+
 export interface PairingCode {
   code: string;
   expiresInSeconds: number;
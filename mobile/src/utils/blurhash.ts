@@ -0,0 +1,136 @@
+// Decodes the blurhash placeholders sent with slideshow images into a tiny
+// BMP data URI, so they can be drawn with a plain <Image> while the real
+// image loads.
+
+const CHARACTERS =
+  '0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~';
+const BASE64 =
+  'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+const SIZE = 32;
+
+// Images are few and their hashes never change, so decoded ones are kept
+const cache = new Map<string, string>();
+
+const decode83 = (value: string): number => {
+  let result = 0;
+  for (const character of value) {
+    result = result * 83 + CHARACTERS.indexOf(character);
+  }
+  return result;
+};
+
+const toLinear = (value: number): number => {
+  const v = value / 255;
+  return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+};
+
+const toSrgb = (value: number): number => {
+  const v = Math.max(0, Math.min(1, value));
+  return v <= 0.0031308
+    ? Math.round(v * 12.92 * 255)
+    : Math.round((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255);
+};
+
+const signedSquare = (value: number): number => Math.sign(value) * value * value;
+
+const decodePixels = (hash: string): Uint8Array | null => {
+  const sizeFlag = decode83(hash[0]);
+  const componentsX = (sizeFlag % 9) + 1;
+  const componentsY = Math.floor(sizeFlag / 9) + 1;
+  if (hash.length !== 4 + 2 * componentsX * componentsY) {
+    return null;
+  }
+
+  const maximumValue = (decode83(hash[1]) + 1) / 166;
+  const colors: number[][] = [];
+  const dc = decode83(hash.substring(2, 6));
+  colors.push([toLinear(dc >> 16), toLinear((dc >> 8) & 255), toLinear(dc & 255)]);
+  for (let i = 1; i < componentsX * componentsY; i++) {
+    const ac = decode83(hash.substring(4 + i * 2, 6 + i * 2));
+    colors.push([
+      signedSquare((Math.floor(ac / 361) - 9) / 9) * maximumValue,
+      signedSquare(((Math.floor(ac / 19) % 19) - 9) / 9) * maximumValue,
+      signedSquare(((ac % 19) - 9) / 9) * maximumValue,
+    ]);
+  }
+
+  const pixels = new Uint8Array(SIZE * SIZE * 3);
+  for (let y = 0; y < SIZE; y++) {
+    for (let x = 0; x < SIZE; x++) {
+      let r = 0;
+      let g = 0;
+      let b = 0;
+      for (let j = 0; j < componentsY; j++) {
+        for (let i = 0; i < componentsX; i++) {
+          const basis =
+            Math.cos((Math.PI * x * i) / SIZE) * Math.cos((Math.PI * y * j) / SIZE);
+          const color = colors[i + j * componentsX];
+          r += color[0] * basis;
+          g += color[1] * basis;
+          b += color[2] * basis;
+        }
+      }
+      const offset = (y * SIZE + x) * 3;
+      pixels[offset] = toSrgb(r);
+      pixels[offset + 1] = toSrgb(g);
+      pixels[offset + 2] = toSrgb(b);
+    }
+  }
+  return pixels;
+};
+
+// 24-bit BMP: no compression to implement, and both platforms decode it.
+// Rows are stored bottom-up in BGR order; 32 * 3 bytes needs no row padding.
+const toBmp = (pixels: Uint8Array): Uint8Array => {
+  const dataSize = SIZE * SIZE * 3;
+  const bmp = new Uint8Array(54 + dataSize);
+  const view = new DataView(bmp.buffer);
+  bmp[0] = 0x42;
+  bmp[1] = 0x4d;
+  view.setUint32(2, bmp.length, true);
+  view.setUint32(10, 54, true);
+  view.setUint32(14, 40, true);
+  view.setInt32(18, SIZE, true);
+  view.setInt32(22, SIZE, true);
+  view.setUint16(26, 1, true);
+  view.setUint16(28, 24, true);
+  view.setUint32(34, dataSize, true);
+  for (let y = 0; y < SIZE; y++) {
+    for (let x = 0; x < SIZE; x++) {
+      const source = (y * SIZE + x) * 3;
+      const target = 54 + ((SIZE - 1 - y) * SIZE + x) * 3;
+      bmp[target] = pixels[source + 2];
+      bmp[target + 1] = pixels[source + 1];
+      bmp[target + 2] = pixels[source];
+    }
+  }
+  return bmp;
+};
+
+const toBase64 = (bytes: Uint8Array): string => {
+  let result = '';
+  for (let i = 0; i < bytes.length; i += 3) {
+    const chunk = (bytes[i] << 16) | ((bytes[i + 1] ?? 0) << 8) | (bytes[i + 2] ?? 0);
+    result += BASE64[(chunk >> 18) & 63] + BASE64[(chunk >> 12) & 63];
+    result += i + 1 < bytes.length ? BASE64[(chunk >> 6) & 63] : '=';
+    result += i + 2 < bytes.length ? BASE64[chunk & 63] : '=';
+  }
+  return result;
+};
+
+export const blurhashToDataUri = (hash?: string | null): string | undefined => {
+  if (!hash || hash.length < 6) {
+    return undefined;
+  }
+  const cached = cache.get(hash);
+  if (cached) {
+    return cached;
+  }
+  const pixels = decodePixels(hash);
+  if (!pixels) {
+    return undefined;
+  }
+  const uri = `data:image/bmp;base64,${toBase64(toBmp(pixels))}`;
+  cache.set(hash, uri);
+  return uri;
+};